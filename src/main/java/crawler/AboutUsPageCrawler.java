@@ -33,6 +33,7 @@ import org.json.JSONObject;
 import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import crawler.CrawlerUtils.Pair;
@@ -41,8 +42,12 @@ import parser.JsonParser;
 public class AboutUsPageCrawler {
 
     // Extracted function for scraping website links
+    // Each URL is fetched and parsed once: the homepage document is checked for a region selection and, unless it
+    // links to a region page, is also used for ranking the links and detecting JavaScript. Only a region page is
+    // fetched in addition to the homepage.
     private static JSONObject scrapeWebsiteLinks(JSONObject jsonObject, ExceptionTracker exceptionTracker) {
         int maxRetries = 0;
+        boolean regionChecked = false;
         String website = jsonObject.getString("website");
         website = replaceWww3WithWww(website);
         JSONObject resultObject = new JSONObject();
@@ -56,51 +61,24 @@ public class AboutUsPageCrawler {
             exceptionTracker.addInvalidUrl(website);
             return resultObject;
         }
-        website = CheckForLanguageSelection(website);
-        System.out.println(website);
         while (maxRetries < 2) {
             maxRetries++;
             try {
-                Document document = Jsoup.connect(website)
-                        .timeout(10000)
-                        .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3")
-                        .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                        .header("Accept-Encoding", "gzip, deflate, sdch")
-                        .header("Accept-Language", "en-US,en;q=0.8")
-                        .header("Connection", "keep-alive")
-                        .get();
-
-                Elements links = document.select("a[href]");
-                List<Pair<String, Integer>> processedList = processLinks(links, getKeywordPriorities(website));
-                List<String> websitesList = getWebsitesList(processedList);
-                List<Integer> priorityList = getPrioritiesList(processedList);
-
-                if (links.isEmpty()) {
-                    resultObject.put("aboutUsPage", website);
-                    break;
-                }
-
-                int websitesFound = websitesList.size();
-
-                if (websitesFound == 0) {
-                    if (checkForJavaScript(document)) {
-                        Pair<String, Integer> aboutUsPageSelenium = findAboutUsPageWithSelenium(website, getKeywordPriorities(website));
-
-                        if (aboutUsPageSelenium.first != null) {
-                            System.out.println("ABOUT US PAGE FOUND WITH SELENIUM " + aboutUsPageSelenium.first);
-                            resultObject.put("aboutUsPage", aboutUsPageSelenium.first);
-                            JSONArray jsonArrayPrioSelenenium = new JSONArray().put(aboutUsPageSelenium.second);
-                            resultObject.put("aboutUsPagePrio", jsonArrayPrioSelenenium);
-                        } else {
-                            resultObject.put("aboutUsPage", website);
-                        }
-                    } else {
-                        resultObject.put("aboutUsPage", website);
+                Document document = fetchDocument(website);
+
+                if (!regionChecked) {
+                    regionChecked = true;
+                    String regionPage = getRegionPage(document);
+                    if (regionPage != null) {
+                        System.out.println("language selection");
+                        website = regionPage;
+                        maxRetries = 0; // The region page gets its own retry
+                        continue;
                     }
-                } else {
-                    resultObject.put("aboutUsPage", websitesList);
-                    resultObject.put("aboutUsPagePrio", priorityList);
                 }
+                System.out.println(website);
+                collectAboutUsPages(document, website, resultObject);
+                break;
 
             } catch (HttpStatusException hse) {
                 maxRetries = 2;
@@ -152,45 +130,58 @@ public class AboutUsPageCrawler {
         return resultObject;
     }
 
-    private static String CheckForLanguageSelection(String website) {
-        int maxRetries = 0;
-        while (maxRetries < 2) {
-            maxRetries++;
-            try {
-                Document document = Jsoup.connect(website)
-                        .timeout(10000)
-                        .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3")
-                        .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                        .header("Accept-Encoding", "gzip, deflate, sdch")
-                        .header("Accept-Language", "en-US,en;q=0.8")
-                        .header("Connection", "keep-alive")
-                        .get();
-
-                Elements links = document.select("a[href]");
-                Elements text = document.select("p");
-                if (checkForRegion(links, text) != null) {
-                    System.out.println("language selection");
-                    return checkForRegion(links, text).attr("abs:href");
-                }
+    private static Document fetchDocument(String website) throws IOException {
+        return Jsoup.connect(website)
+                .timeout(10000)
+                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3")
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
+                .header("Accept-Encoding", "gzip, deflate, sdch")
+                .header("Accept-Language", "en-US,en;q=0.8")
+                .header("Connection", "keep-alive")
+                .get();
+    }
 
-            } catch (HttpStatusException hse) {
-                maxRetries = 2;
-            } catch (SSLHandshakeException e) {
-                website = convertToHttp(website);
-            } catch (SSLException e) {
-                website = convertToHttp(website);
-            } catch (SocketTimeoutException e) {
-                maxRetries = 2;
-            } catch (UnknownHostException e) {
-                maxRetries = 2;
-            } catch (SocketException e) {
-                maxRetries = 2;
-            } catch (Exception e) {
-                maxRetries = 2;
+    // Returns the absolute URL of the region page the homepage links to, or null if there is none
+    private static String getRegionPage(Document document) {
+        Element region = checkForRegion(document.select("a[href]"), document.select("p"));
+        if (region == null) {
+            return null;
+        }
+        String regionPage = region.attr("abs:href");
+        return regionPage.isEmpty() ? null : regionPage;
+    }
+
+    // Ranks the links of the fetched document and falls back to Selenium for JavaScript pages without links found
+    private static void collectAboutUsPages(Document document, String website, JSONObject resultObject) {
+        Elements links = document.select("a[href]");
+        if (links.isEmpty()) {
+            resultObject.put("aboutUsPage", website);
+            return;
+        }
+        String[][] keywordPriorities = getKeywordPriorities(website);
+        List<Pair<String, Integer>> processedList = processLinks(links, keywordPriorities);
+        List<String> websitesList = getWebsitesList(processedList);
+        List<Integer> priorityList = getPrioritiesList(processedList);
+
+        if (!websitesList.isEmpty()) {
+            resultObject.put("aboutUsPage", websitesList);
+            resultObject.put("aboutUsPagePrio", priorityList);
+        } else if (checkForJavaScript(document)) {
+            Pair<String, Integer> aboutUsPageSelenium = findAboutUsPageWithSelenium(website, keywordPriorities);
+
+            if (aboutUsPageSelenium.first != null) {
+                System.out.println("ABOUT US PAGE FOUND WITH SELENIUM " + aboutUsPageSelenium.first);
+                resultObject.put("aboutUsPage", aboutUsPageSelenium.first);
+                JSONArray jsonArrayPrioSelenenium = new JSONArray().put(aboutUsPageSelenium.second);
+                resultObject.put("aboutUsPagePrio", jsonArrayPrioSelenenium);
+            } else {
+                resultObject.put("aboutUsPage", website);
             }
+        } else {
+            resultObject.put("aboutUsPage", website);
         }
-        return website;
     }
+
         public static void main (String[]args){
             String jsonFile = "data/websites1500.json";
             ExceptionTracker exceptionTracker = new ExceptionTracker();
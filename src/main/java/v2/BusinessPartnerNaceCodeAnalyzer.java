@@ -1,20 +1,29 @@
 package v2;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-
-import org.jsoup.nodes.Document;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import v2.Objects.BusinessPartner;
+import v2.Objects.CrawledPage;
+import v2.Objects.StoredPage;
 import v2.Objects.NaceCodes.NaceCodePredictionSet;
 import v2.Objects.NaceCodes.NaceCodePredictionsList;
+import v2.Profiling.FlightRecording;
 import v2.Python.NaceCodePredictorClient;
+import v2.Storage.CrawlStore;
+import v2.crawler.CrawlDriver;
 import v2.crawler.Crawler;
 import v2.crawler.ErrorTracking.ErrorTracker;
+import v2.crawler.Journal.CrawlJournal;
 import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
 import v2.dataProcessing.ConfigManager.NaceCodeConfig;
 import v2.dataProcessing.FileManager;
 import v2.dataProcessing.HtmlProcessor;
@@ -26,42 +35,56 @@ public class BusinessPartnerNaceCodeAnalyzer {
 
     private final static String BP_JSON_PATH = "data/osapiens_BP.json";
     private final static String ERROR_LOG_PATH = "data/Output/errorLog/error.log";
+    private final static String LEGACY_DOCUMENTS_PATH = "data/Output/CrawledDocuments/";
 
     public static void main(String[] args) {
 
         Scanner scanner = new Scanner(System.in);
+        ConfigManager configManager = new ConfigManager();
+        FlightRecording flightRecording = FlightRecording.start(configManager.getProfilingConfig());
 
         List<BusinessPartner> businessPartners = chooseBusinessPartnerAction(scanner);
-        websiteCrawling(scanner, businessPartners);
-
-        ConfigManager configManager = new ConfigManager();
+        CrawlerConfig crawlerConfig = configManager.getCrawlerConfig();
+        CrawlStore crawlStore = openCrawlStore(crawlerConfig);
+        websiteCrawling(scanner, businessPartners, crawlerConfig, crawlStore);
 
         // TODO: handle keywords
         HtmlProcessor htmlProcessor = new HtmlProcessor(configManager.getHtmlConfig());
         TextProcessor textProcessor = new TextProcessor(configManager.getTextConfig());
 
-        for (BusinessPartner businessPartner : businessPartners) {
-            List<Document> documents = FileManager.loadDocumentsFromFile("data/Output/CrawledDocuments/" + businessPartner.getBusinessPartnerKey() + ".json");
-            htmlProcessor.processHtml(documents);
-            for (Document doc : documents) {
+        // Processing and prediction results are keyed by the content hash of the page, so a page shared by
+        // several partners is processed and predicted once
+        Map<String, List<String>> processedTextsByHash = new ConcurrentHashMap<>();
+        Map<String, NaceCodePredictionSet> predictionSetsByHash = new HashMap<>();
+
+        // Partners are processed in parallel, the HTML processor decides on the page URLs and reads the kept pages
+        // only. The pages of a partner are released once its texts are processed, so only the pages of the
+        // partners in flight are held in memory
+        businessPartners.parallelStream().forEach(businessPartner -> {
+            List<CrawledPage> selectedPages = htmlProcessor.processStoredPages(
+                    loadPages(crawlStore, businessPartner.getBusinessPartnerKey()));
+            for (CrawledPage page : selectedPages) {
                 // TODO: add a tag to every processed text (for example: "summary" or "text")
-                List<String> processedText = textProcessor.processTexts(doc);
+                // Processed outside the map, computeIfAbsent would block other partners on the same bin meanwhile.
+                // Two partners sharing a page may both process it, the first result is kept
+                List<String> processedText = processedTextsByHash.get(page.getContentHash());
+                if (processedText == null) {
+                    List<String> texts = textProcessor.processTexts(page);
+                    List<String> previous = processedTextsByHash.putIfAbsent(page.getContentHash(), texts);
+                    processedText = previous != null ? previous : texts;
+                }
                 if (processedText != null && !processedText.isEmpty())
-                    businessPartner.addProcessedData(processedText);
+                    businessPartner.addProcessedData(page.getContentHash(), processedText);
             }
-        }
+        });
 
         for (BusinessPartner businessPartner : businessPartners) {
             List<List<String>> processedData = businessPartner.getProcessedData();
-            for (List<String> texts : processedData) {
-                NaceCodePredictionSet predictionSet = new NaceCodePredictionSet();
-                for (String text : texts) {
-                    if (text != null && !text.isEmpty()) {
-                        NaceCodePredictionsList predictionsList = NaceCodePredictorClient.predictNaceCode(text);
-                        predictionsList.setInputData(text);
-                        predictionSet.addPrediction(predictionsList);
-                    }
-                }
+            for (int i = 0; i < processedData.size(); i++) {
+                List<String> texts = processedData.get(i);
+                String contentHash = businessPartner.getProcessedDataHash(i);
+                NaceCodePredictionSet predictionSet = contentHash == null ? predictNaceCodes(texts)
+                        : predictionSetsByHash.computeIfAbsent(contentHash, hash -> predictNaceCodes(texts));
                 if (!predictionSet.getPredictions().isEmpty()) {
                     businessPartner.addNaceCodePredictionSet(predictionSet);
                     System.out.println("predicted NACE codes for BP " + businessPartner.getBusinessPartnerKey());
@@ -86,18 +109,43 @@ public class BusinessPartnerNaceCodeAnalyzer {
         // Save results
         BusinessPartner.saveBusinessPartnersAsJson(businessPartners, "data/Output/SavedBusinessPartners/");
 
+        closeCrawlStore(crawlStore);
+        if (flightRecording != null) {
+            flightRecording.stop(); // Summarized per stage by FlightRecordingSummary
+        }
         scanner.close();
         System.exit(0);
     }
 
+    /**
+     * Predicts the NACE codes of every non-empty text of a page.
+     *
+     * @param texts The processed texts of a page.
+     * @return The predictions of the texts, empty if no text was predicted.
+     */
+    private static NaceCodePredictionSet predictNaceCodes(List<String> texts) {
+        NaceCodePredictionSet predictionSet = new NaceCodePredictionSet();
+        for (String text : texts) {
+            if (text != null && !text.isEmpty()) {
+                NaceCodePredictionsList predictionsList = NaceCodePredictorClient.predictNaceCode(text);
+                predictionsList.setInputData(text);
+                predictionSet.addPrediction(predictionsList);
+            }
+        }
+        return predictionSet;
+    }
+
     /**
      * Asks the user if they want to crawl websites and performs the crawling if yes, also saves the BP in JSON format with the crawled data.
+     * Several partners are crawled concurrently, each partner's files are written as soon as its crawl completes.
      *
      * @param scanner          Scanner for reading user input.
      * @param businessPartners List of BusinessPartner objects to crawl.
-     * @param errorTracker     ErrorTracker instance for logging errors.
+     * @param crawlerConfig    The crawler configuration of the run, also used for the crawl store and the journal.
+     * @param crawlStore       The store the crawled pages of every partner are written to.
      */
-    private static void websiteCrawling(Scanner scanner, List<BusinessPartner> businessPartners) {
+    private static void websiteCrawling(Scanner scanner, List<BusinessPartner> businessPartners,
+                                        CrawlerConfig crawlerConfig, CrawlStore crawlStore) {
         int crawlChoice;
 
         do {
@@ -110,25 +158,32 @@ public class BusinessPartnerNaceCodeAnalyzer {
 
             switch (crawlChoice) {
                 case 1:
-                Crawler crawler = new Crawler();
-                for (BusinessPartner businessPartner : businessPartners) {
-                    System.out.println("Crawling website: " + businessPartner.getWebsite());
-                    CompletableFuture<List<Document>> futureDocuments = crawler.crawlFullPage(businessPartner.getWebsite());
-
-                    try {
-                        List<Document> crawledData = futureDocuments.get();
-                        if (crawledData != null && !crawledData.isEmpty()) {
-                            FileManager.saveDocumentsToFile(crawledData, "data/Output/CrawledDocuments/" + businessPartner.getBusinessPartnerKey() + ".json");
-                            FileManager.saveHtmlFromDocsToJson(crawledData, "data/Output/CrawledHtml/" + businessPartner.getBusinessPartnerKey() + ".json");
-                        } else {
-                            System.err.println("No data crawled for: " + businessPartner.getWebsite());
+                CrawlJournal crawlJournal = openCrawlJournal(crawlerConfig, crawlStore);
+                ErrorTracker.getInstance().startErrorLog(ERROR_LOG_PATH);
+                Crawler crawler = new Crawler(crawlerConfig);
+                crawler.setSharedPageLookup(url -> findStoredPage(crawlStore, url));
+                CrawlDriver crawlDriver = new CrawlDriver(crawler, crawlerConfig, crawlJournal);
+                crawlDriver.crawlAll(businessPartners, (businessPartner, crawledData) -> {
+                    if (crawledData != null && !crawledData.isEmpty()) {
+                        try {
+                            crawlStore.putPages(businessPartner.getBusinessPartnerKey(), crawledData);
+                        } catch (IOException e) {
+                            // Journaled as failed instead of done, so the partner is not skipped on resume
+                            throw new UncheckedIOException("Could not store the crawled pages of "
+                                    + businessPartner.getBusinessPartnerKey(), e);
                         }
-                    } catch (InterruptedException | ExecutionException e) {
-                        e.printStackTrace();
+                    } else {
+                        System.err.println("No data crawled for: " + businessPartner.getWebsite());
                     }
-
-                    ErrorTracker.getInstance().writeErrorsToFile(ERROR_LOG_PATH);
+                });
+                crawler.shutdown();
+                if (crawlJournal != null) {
+                    crawlJournal.close();
                 }
+                System.out.println(crawler.getFallbackPolicy().generateRouteSummary());
+
+                // Errors were appended while crawling, the summary closes the log
+                ErrorTracker.getInstance().closeErrorLog();
                 break;
 
                 case 2:
@@ -143,6 +198,82 @@ public class BusinessPartnerNaceCodeAnalyzer {
         } while (crawlChoice != 1 && crawlChoice != 2);
     }
 
+    /**
+     * Opens the crawl store. Without it nothing can be crawled or analyzed, so the run ends if it cannot be opened.
+     *
+     * @param crawlerConfig The crawler configuration holding the store directory.
+     * @return The open store.
+     */
+    private static CrawlStore openCrawlStore(CrawlerConfig crawlerConfig) {
+        try {
+            return CrawlStore.open(crawlerConfig);
+        } catch (IOException e) {
+            System.err.println("Could not open the crawl store " + crawlerConfig.crawlStoreDirectory + ": " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /**
+     * Reads a page stored for any partner, for the crawler to share pages between partners' websites.
+     *
+     * @return The page, or null if it is not stored or cannot be read.
+     */
+    private static CrawledPage findStoredPage(CrawlStore crawlStore, String url) {
+        try {
+            return crawlStore.findPage(url);
+        } catch (IOException e) {
+            System.err.println("Could not read the stored page " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void closeCrawlStore(CrawlStore crawlStore) {
+        try {
+            crawlStore.close();
+        } catch (IOException e) {
+            System.err.println("Could not close the crawl store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lists the crawled pages of a partner in the crawl store without reading them. Partners crawled before the
+     * store existed are read from their file in CrawledDocuments.
+     *
+     * @param crawlStore The crawl store.
+     * @param partnerKey The key of the business partner.
+     * @return The crawled pages, empty if there are none.
+     */
+    private static List<StoredPage> loadPages(CrawlStore crawlStore, String partnerKey) {
+        if (!crawlStore.containsPartner(partnerKey)) {
+            return FileManager.loadStoredPagesFromFile(LEGACY_DOCUMENTS_PATH + partnerKey + ".json");
+        }
+        return crawlStore.streamPages(partnerKey).collect(Collectors.toList());
+    }
+
+    /**
+     * Opens the crawl journal if it is enabled. A run that cannot be journaled is crawled without one.
+     *
+     * @param crawlerConfig The crawler configuration holding the journal settings.
+     * @param crawlStore    The store the journal keeps the content of done pages in.
+     * @return The open journal, or null.
+     */
+    private static CrawlJournal openCrawlJournal(CrawlerConfig crawlerConfig, CrawlStore crawlStore) {
+        if (!crawlerConfig.useCrawlJournal) {
+            return null;
+        }
+        try {
+            CrawlJournal crawlJournal = CrawlJournal.open(crawlerConfig, crawlStore);
+            if (crawlJournal.isResumed()) {
+                System.out.println("Resuming the interrupted crawl run from " + crawlerConfig.crawlJournalPath);
+            }
+            return crawlJournal;
+        } catch (IOException e) {
+            System.err.println("Could not open the crawl journal, crawling without resume: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Prompts the user to choose an action regarding Business Partners and processes the choice.
      *
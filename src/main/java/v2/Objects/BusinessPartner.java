@@ -1,21 +1,16 @@
 package v2.Objects;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -23,6 +18,7 @@ import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import v2.Objects.NaceCodes.NaceCodePredictionSet;
+import v2.dataProcessing.DunsAndBradstreetIndex;
 
 public class BusinessPartner {
 
@@ -33,6 +29,7 @@ public class BusinessPartner {
     // Crawled data as Jsoup Documents
 
     private List<List<String>> processedData;
+    private List<String> processedDataHashes; // Content hash of the page of every processedData entry, null if unknown
     private List<NaceCodePredictionSet> naceCodePredictionSets;
     private String[] dunsAndBradstreetCodes;
     private String[] naceCodes;
@@ -40,6 +37,7 @@ public class BusinessPartner {
     public BusinessPartner() {
         this.naceCodePredictionSets = new ArrayList<>();
         this.processedData = new ArrayList<>();
+        this.processedDataHashes = new ArrayList<>();
         this.dunsAndBradstreetCodes = new String[0];
         this.naceCodes = new String[0];
     }
@@ -50,6 +48,7 @@ public class BusinessPartner {
         this.website = website;
         this.naceCodePredictionSets = new ArrayList<>();
         this.processedData = new ArrayList<>();
+        this.processedDataHashes = new ArrayList<>();
         this.dunsAndBradstreetCodes = AddDunAndBradStreetCodes(DunsAndBradstreetCodesPath);
         this.naceCodes = new String[0];
     }
@@ -295,40 +294,19 @@ public class BusinessPartner {
 
     /**
      * Adds Dun & Bradstreet industry codes to the BusinessPartner based on a given file.
+     * The file is indexed once and the index is shared by all business partners.
      *
      * @param filePath The path to the JSON file containing the Dun & Bradstreet codes.
      * @return An array of Dun & Bradstreet codes.
      */
     public String[] AddDunAndBradStreetCodes(String filePath) {
-        JSONParser parser = new JSONParser();
-
-        try {
-            JSONArray jsonArray = (JSONArray) parser.parse(new FileReader(filePath));
-
-            for (Object obj : jsonArray) {
-                JSONObject jsonObject = (JSONObject) obj;
-                String key = (String) jsonObject.get("key");
-
-                if (businessPartnerKey != null && businessPartnerKey.equals(key)) {
-                    JSONArray dunsCodes = (JSONArray) jsonObject.get("dunsIndustryCodeList");
-
-                    if (dunsCodes != null) {
-                        dunsAndBradstreetCodes = new String[dunsCodes.size()];
-                        for (int i = 0; i < dunsCodes.size(); i++) {
-                            String code = (String) dunsCodes.get(i);
-                            // Remove the period from the code
-                            dunsAndBradstreetCodes[i] = code.replace(".", "");
-                        }
-                        return dunsAndBradstreetCodes; // Return the array of formatted codes
-                    }
-                }
-            }
-        } catch (IOException | ParseException e) {
-            e.printStackTrace();
+        DunsAndBradstreetIndex index = DunsAndBradstreetIndex.forFile(filePath);
+        String[] codes = index.getCodes(businessPartnerKey);
+        if (index.containsPartner(businessPartnerKey)) {
+            dunsAndBradstreetCodes = codes; // Also an empty list of the file
         }
-
-        // Return an empty array if no codes are found or an exception occurs
-        return new String[0];
+        // Return an empty array if no codes are found or the file cannot be read
+        return codes;
     }
 
 
@@ -363,10 +341,29 @@ public class BusinessPartner {
 
     public void setProcessedData(List<List<String>> processedData) {
         this.processedData = processedData;
+        this.processedDataHashes = new ArrayList<>(Collections.nCopies(processedData == null ? 0 : processedData.size(), (String) null));
     }
 
     public void addProcessedData(List<String> processedData) {
+        addProcessedData(null, processedData);
+    }
+
+    /**
+     * Adds the processed texts of a crawled page together with the content hash of the page.
+     *
+     * @param contentHash   The content hash of the page, the key its prediction results are shared under.
+     * @param processedData The processed texts of the page.
+     */
+    public void addProcessedData(String contentHash, List<String> processedData) {
         this.processedData.add(processedData);
+        this.processedDataHashes.add(contentHash);
+    }
+
+    /**
+     * Returns the content hash of the page of the processed data entry at the index, or null if it is unknown.
+     */
+    public String getProcessedDataHash(int index) {
+        return index < processedDataHashes.size() ? processedDataHashes.get(index) : null;
     }
 
     public String[] getDunsAndBradstreetCodes() {
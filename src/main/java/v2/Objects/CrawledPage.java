@@ -0,0 +1,265 @@
+package v2.Objects;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+
+/**
+ * A crawled page as it is passed from the crawler to storage and the processors: fetch metadata, the response
+ * headers and the deflate-compressed response body as received, and the links and paragraphs extracted at fetch
+ * time. No DOM is kept, {@link #toDocument()} parses the stored body again for the rare code that needs one.
+ */
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE)
+public class CrawledPage {
+
+    public static final String ROUTE_HTTP = "http";
+    public static final String ROUTE_SELENIUM = "selenium";
+
+    private String url;
+    private int statusCode;
+    private long fetchedAt; // Epoch millis the fetch completed at
+    private long fetchMillis; // Duration of the fetch, retries excluded
+    private String route; // How the body was obtained, ROUTE_HTTP or ROUTE_SELENIUM
+    private String charset; // Charset of the body, null if unknown
+    private Map<String, List<String>> headers; // Response headers as received, empty for rendered pages
+    private int bodyLength; // Length of the uncompressed body
+    private String contentHash; // SHA-256 of the uncompressed body in hex, identifies identical pages
+    private byte[] compressedBody;
+    private List<String> links;
+    private List<String> paragraphs;
+
+    private CrawledPage() {
+        // For Jackson
+    }
+
+    /**
+     * Creates a page without response headers.
+     *
+     * @see #CrawledPage(String, int, long, long, String, byte[], String, Map, List, List)
+     */
+    public CrawledPage(String url, int statusCode, long fetchedAt, long fetchMillis, String route, byte[] body,
+                       String charset, List<String> links, List<String> paragraphs) {
+        this(url, statusCode, fetchedAt, fetchMillis, route, body, charset, Collections.emptyMap(), links, paragraphs);
+    }
+
+    /**
+     * @param url         The URL of the page after redirects.
+     * @param statusCode  The HTTP status of the response.
+     * @param fetchedAt   The epoch millis the fetch completed at.
+     * @param fetchMillis The duration of the fetch.
+     * @param route       {@link #ROUTE_HTTP} or {@link #ROUTE_SELENIUM}.
+     * @param body        The raw response body, or the page source for rendered pages. It is stored compressed.
+     * @param charset     The charset of the body, null if unknown.
+     * @param headers     The response headers.
+     * @param links       The absolute URLs of the links of the page, in document order.
+     * @param paragraphs  The texts of the paragraphs of the page, in document order.
+     */
+    public CrawledPage(String url, int statusCode, long fetchedAt, long fetchMillis, String route, byte[] body,
+                       String charset, Map<String, List<String>> headers, List<String> links, List<String> paragraphs) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.fetchedAt = fetchedAt;
+        this.fetchMillis = fetchMillis;
+        this.route = route;
+        this.charset = charset;
+        this.headers = new LinkedHashMap<>(headers);
+        this.bodyLength = body.length;
+        this.contentHash = hash(body);
+        this.compressedBody = deflate(body);
+        this.links = links;
+        this.paragraphs = paragraphs;
+    }
+
+    /**
+     * Restores a stored page from its compressed body, without compressing the body again.
+     *
+     * @param compressedBody The body as returned by {@link #getCompressedBody()}.
+     * @param bodyLength     The length of the uncompressed body.
+     * @param contentHash    The hash of the body as returned by {@link #getContentHash()}.
+     */
+    public static CrawledPage fromCompressedBody(String url, int statusCode, long fetchedAt, long fetchMillis, String route,
+                                                 byte[] compressedBody, int bodyLength, String contentHash, String charset,
+                                                 Map<String, List<String>> headers, List<String> links,
+                                                 List<String> paragraphs) {
+        CrawledPage page = new CrawledPage();
+        page.url = url;
+        page.statusCode = statusCode;
+        page.fetchedAt = fetchedAt;
+        page.fetchMillis = fetchMillis;
+        page.route = route;
+        page.charset = charset;
+        page.headers = headers;
+        page.bodyLength = bodyLength;
+        page.compressedBody = compressedBody;
+        page.contentHash = contentHash;
+        page.links = links;
+        page.paragraphs = paragraphs;
+        return page;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getFetchMillis() {
+        return fetchMillis;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers != null ? Collections.unmodifiableMap(headers) : Collections.emptyMap();
+    }
+
+    /**
+     * Returns the first value of the response header with the given name, ignoring case, or null if it was not sent.
+     */
+    public String getHeader(String name) {
+        for (Map.Entry<String, List<String>> header : getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    public int getCompressedLength() {
+        return compressedBody.length;
+    }
+
+    /**
+     * Returns the SHA-256 of the uncompressed body as hex. Pages with the same body, e.g. the same sub-page of
+     * several partners sharing a website, have the same hash; storage and processing results are keyed by it.
+     */
+    public String getContentHash() {
+        if (contentHash == null) {
+            contentHash = hash(getBody()); // Page saved before the hash was stored
+        }
+        return contentHash;
+    }
+
+    /**
+     * Returns the deflate-compressed body. The array is not copied and must not be modified.
+     */
+    public byte[] getCompressedBody() {
+        return compressedBody;
+    }
+
+    public List<String> getLinks() {
+        return links != null ? links : Collections.emptyList();
+    }
+
+    public List<String> getParagraphs() {
+        return paragraphs != null ? paragraphs : Collections.emptyList();
+    }
+
+    /**
+     * Returns the uncompressed response body.
+     */
+    public byte[] getBody() {
+        return inflate(compressedBody, bodyLength);
+    }
+
+    /**
+     * Returns the response body decoded with its charset, UTF-8 if the charset is unknown or unsupported.
+     */
+    public String getHtml() {
+        Charset bodyCharset = StandardCharsets.UTF_8;
+        if (charset != null && Charset.isSupported(charset)) {
+            bodyCharset = Charset.forName(charset);
+        }
+        return new String(getBody(), bodyCharset);
+    }
+
+    /**
+     * Parses the stored body into a new document. The document is not cached, callers that need it
+     * more than once keep it themselves.
+     */
+    public Document toDocument() {
+        return Jsoup.parse(getHtml(), url);
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(result, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != length) {
+                throw new UncheckedIOException(new IOException("Truncated page body: " + read + " of " + length + " bytes"));
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt page body", e));
+        } finally {
+            inflater.end();
+        }
+    }
+}
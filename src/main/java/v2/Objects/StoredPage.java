@@ -0,0 +1,61 @@
+package v2.Objects;
+
+import java.io.IOException;
+
+/**
+ * A crawled page that is known by its URL but not read yet. The HTML processor orders, limits and filters stored
+ * pages by URL and only the pages it keeps are read from storage, once.
+ */
+public class StoredPage {
+
+    /**
+     * Reads the page from storage.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        CrawledPage load() throws IOException;
+    }
+
+    private final String url;
+    private Loader loader;
+    private CrawledPage page;
+
+    /**
+     * @param url    The URL of the page.
+     * @param loader Reads the page, called at most once.
+     */
+    public StoredPage(String url, Loader loader) {
+        this.url = url;
+        this.loader = loader;
+    }
+
+    /**
+     * Wraps a page that is already read.
+     */
+    public static StoredPage of(CrawledPage page) {
+        StoredPage storedPage = new StoredPage(page.getUrl(), null);
+        storedPage.page = page;
+        return storedPage;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public synchronized boolean isLoaded() {
+        return page != null;
+    }
+
+    /**
+     * Returns the page, reading it from storage on the first call.
+     *
+     * @throws IOException If the page cannot be read.
+     */
+    public synchronized CrawledPage load() throws IOException {
+        if (page == null) {
+            page = loader.load();
+            loader = null;
+        }
+        return page;
+    }
+}
@@ -0,0 +1,50 @@
+package v2.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The fetch of a page, over HTTP or rendered with Selenium. The event duration is the total fetch time.
+ * Disabled unless a {@link FlightRecording} or a JFR settings file enables it.
+ */
+@Name(FetchEvent.NAME)
+@Label("Page Fetch")
+@Category({"Crawler", "Fetch"})
+@Description("Fetch of a page including time to first byte and body download")
+@Enabled(false)
+@StackTrace(false)
+public class FetchEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "v2.crawler.Fetch";
+
+    @Label("URL")
+    public String url;
+
+    @Label("Host")
+    public String host;
+
+    @Label("Route")
+    @Description("\"http\" for a transport fetch, \"selenium\" for a page rendered in the browser")
+    public String route;
+
+    @Label("Status Code")
+    public int statusCode;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Time To First Byte")
+    @Description("Time until the response headers were in, including connect and TLS handshake of a new connection")
+    @Timespan(Timespan.MILLISECONDS)
+    public long timeToFirstByte;
+
+    @Label("Error")
+    public String error;
+}
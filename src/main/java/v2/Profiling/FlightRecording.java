@@ -0,0 +1,72 @@
+package v2.Profiling;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import jdk.jfr.Recording;
+import v2.dataProcessing.ConfigManager.ProfilingConfig;
+
+/**
+ * A Java Flight Recorder recording of the crawl, processing and prediction events of a run.
+ * The events are disabled unless a recording enables them, so they cost next to nothing in a run without one.
+ * The recording is written to a .jfr file when it is stopped, {@link FlightRecordingSummary} turns it into
+ * latency percentiles per stage.
+ */
+public class FlightRecording {
+
+    private final Recording recording;
+    private final Path path;
+
+    private FlightRecording(Recording recording, Path path) {
+        this.recording = recording;
+        this.path = path;
+    }
+
+    /**
+     * Starts recording the events of this package if {@code ProfilingConfig.recordFlightEvents} is set.
+     *
+     * @param profilingConfig The configuration holding the flag and the path of the recording.
+     * @return The started recording, or null if recording is disabled or JFR is not available.
+     */
+    public static FlightRecording start(ProfilingConfig profilingConfig) {
+        if (!profilingConfig.recordFlightEvents) {
+            return null;
+        }
+        Path path = Paths.get(profilingConfig.flightRecordingPath);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Recording recording = new Recording();
+            recording.setName("crawl");
+            recording.setToDisk(true);
+            recording.enable(FetchEvent.class).withoutThreshold();
+            recording.enable(ParseEvent.class).withoutThreshold();
+            recording.enable(ProcessingStageEvent.class).withoutThreshold();
+            recording.enable(PredictionEvent.class).withoutThreshold();
+            recording.start();
+            System.out.println("Recording flight events to " + path);
+            return new FlightRecording(recording, path);
+        } catch (IOException | IllegalStateException | SecurityException e) {
+            System.err.println("Could not start the flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stops the recording and writes it to its file.
+     */
+    public void stop() {
+        try {
+            recording.stop();
+            recording.dump(path);
+            System.out.println("Flight recording written to " + path);
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Could not write the flight recording: " + e.getMessage());
+        } finally {
+            recording.close();
+        }
+    }
+}
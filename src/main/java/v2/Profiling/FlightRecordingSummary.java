@@ -0,0 +1,88 @@
+package v2.Profiling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import v2.Objects.CrawledPage;
+import v2.crawler.LatencyHistogram;
+import v2.dataProcessing.ConfigManager;
+
+/**
+ * Summarizes a .jfr recording of a run into latency percentiles per stage: fetches per route, with the
+ * time to first byte of HTTP fetches, parses per mode, every processing stage and the prediction calls.
+ * <p>
+ * Usage: {@code FlightRecordingSummary [recording.jfr]}, without an argument the configured recording is read.
+ */
+public class FlightRecordingSummary {
+
+    public static void main(String[] args) {
+        String path = args.length > 0 ? args[0] : new ConfigManager().getProfilingConfig().flightRecordingPath;
+        try {
+            System.out.println(format(summarize(Paths.get(path))));
+        } catch (IOException e) {
+            System.err.println("Could not read the flight recording " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the events of the recording into a latency histogram per stage.
+     *
+     * @param recording The path of the .jfr file.
+     * @return The histograms keyed by stage name, sorted by name.
+     * @throws IOException If the recording cannot be read.
+     */
+    public static Map<String, LatencyHistogram> summarize(Path recording) throws IOException {
+        Map<String, LatencyHistogram> stages = new TreeMap<>();
+        try (RecordingFile recordingFile = new RecordingFile(recording)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                long millis = event.getDuration().toMillis();
+                switch (event.getEventType().getName()) {
+                    case FetchEvent.NAME:
+                        String route = event.getString("route");
+                        record(stages, "fetch " + route, millis);
+                        // Only plain HTTP fetches measure it, a Selenium render would record it as 0 ms
+                        if (CrawledPage.ROUTE_HTTP.equals(route) && event.getString("error") == null) {
+                            record(stages, "fetch " + route + " ttfb", event.getDuration("timeToFirstByte").toMillis());
+                        }
+                        break;
+                    case ParseEvent.NAME:
+                        record(stages, "parse " + event.getString("mode"), millis);
+                        break;
+                    case ProcessingStageEvent.NAME:
+                        record(stages, event.getString("processor") + " " + event.getString("stage"), millis);
+                        break;
+                    case PredictionEvent.NAME:
+                        record(stages, "prediction", millis);
+                        break;
+                    default:
+                }
+            }
+        }
+        return stages;
+    }
+
+    private static void record(Map<String, LatencyHistogram> stages, String stage, long millis) {
+        stages.computeIfAbsent(stage, key -> new LatencyHistogram()).record(millis);
+    }
+
+    /**
+     * Formats the histograms as a table of count and p50, p90, p99 and maximum in milliseconds.
+     */
+    public static String format(Map<String, LatencyHistogram> stages) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-45s %8s %8s %8s %8s %8s%n", "Stage", "Count", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, LatencyHistogram> entry : stages.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            summary.append(String.format("%-45s %8d %8d %8d %8d %8d%n", entry.getKey(), histogram.getCount(),
+                    histogram.getPercentile(50), histogram.getPercentile(90), histogram.getPercentile(99),
+                    histogram.getPercentile(100)));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package v2.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The extraction of links and paragraphs from a fetched or rendered page.
+ */
+@Name(ParseEvent.NAME)
+@Label("Page Parse")
+@Category({"Crawler", "Parse"})
+@Description("Extraction of the links and paragraphs of a page")
+@Enabled(false)
+@StackTrace(false)
+public class ParseEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "v2.crawler.Parse";
+
+    @Label("URL")
+    public String url;
+
+    @Label("Mode")
+    @Description("\"dom\", \"streaming\" or \"rendered\" for the page source of the browser")
+    public String mode;
+
+    @Label("Body Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Links")
+    public int links;
+
+    @Label("Paragraphs")
+    public int paragraphs;
+}
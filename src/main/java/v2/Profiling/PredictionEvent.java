@@ -0,0 +1,32 @@
+package v2.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A call of the NACE code prediction service.
+ */
+@Name(PredictionEvent.NAME)
+@Label("NACE Code Prediction")
+@Category({"Prediction"})
+@Description("Request to the NACE code prediction service")
+@Enabled(false)
+@StackTrace(false)
+public class PredictionEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "v2.prediction.Predict";
+
+    @Label("Input Length")
+    @Description("Characters of the text sent for prediction")
+    public int inputLength;
+
+    @Label("Predictions")
+    public int predictions;
+
+    @Label("Error")
+    public String error;
+}
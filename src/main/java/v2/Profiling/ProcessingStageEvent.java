@@ -0,0 +1,54 @@
+package v2.Profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One step of the processing sequence of the {@code HtmlProcessor} or the {@code TextProcessor}.
+ */
+@Name(ProcessingStageEvent.NAME)
+@Label("Processing Stage")
+@Category({"Processing"})
+@Description("One step of the HTML or text processing sequence")
+@Enabled(false)
+@StackTrace(false)
+public class ProcessingStageEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "v2.processing.Stage";
+
+    @Label("Processor")
+    public String processor;
+
+    @Label("Stage")
+    @Description("The processing type of the configured sequence")
+    public String stage;
+
+    @Label("Input Items")
+    public int inputItems;
+
+    @Label("Output Items")
+    public int outputItems;
+
+    /**
+     * Ends the event and commits it if it is recorded.
+     *
+     * @param processor   The simple name of the processor class.
+     * @param stage       The processing type of the stage.
+     * @param inputItems  The pages or paragraphs the stage was given.
+     * @param outputItems The pages or paragraphs the stage returned.
+     */
+    public void commitStage(String processor, String stage, int inputItems, int outputItems) {
+        end();
+        if (shouldCommit()) {
+            this.processor = processor;
+            this.stage = stage;
+            this.inputItems = inputItems;
+            this.outputItems = outputItems;
+            commit();
+        }
+    }
+}
@@ -14,6 +14,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import v2.Objects.NaceCodes.NaceCodePrediction;
 import v2.Objects.NaceCodes.NaceCodePredictionsList;
+import v2.Profiling.PredictionEvent;
 
 public class NaceCodePredictorClient {
 
@@ -28,6 +29,8 @@ public class NaceCodePredictorClient {
         }
 
         ObjectMapper objectMapper = new ObjectMapper(); // Ensure you have an ObjectMapper instance
+        PredictionEvent event = new PredictionEvent();
+        event.begin();
         try {
             HttpURLConnection conn = createConnection(SERVICE_URL); // Replace with your actual method to create a connection
             sendRequest(conn, inputText); // Replace with your actual method to send a request
@@ -41,13 +44,25 @@ public class NaceCodePredictorClient {
             NaceCodePredictionsList predictionsList = new NaceCodePredictionsList(inputText);
             predictions.forEach(predictionsList::addPrediction);
 
+            commitPrediction(event, inputText, predictions.size(), null);
             return predictionsList;
         } catch (Exception e) {
             e.printStackTrace();
+            commitPrediction(event, inputText, 0, e.getClass().getSimpleName());
             return new NaceCodePredictionsList(inputText); // Return an empty NaceCodePredictionsList in case of an error
         }
     }
 
+    private static void commitPrediction(PredictionEvent event, String inputText, int predictions, String error) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.inputLength = inputText.length();
+            event.predictions = predictions;
+            event.error = error;
+            event.commit();
+        }
+    }
+
     private static HttpURLConnection createConnection(String urlString) throws Exception {
         URL url = new URL(urlString);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
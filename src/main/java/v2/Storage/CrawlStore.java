@@ -0,0 +1,846 @@
+package v2.Storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import v2.Objects.CrawledPage;
+import v2.Objects.StoredPage;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Append-only store of the crawled pages of all business partners, in a few large segment files instead of
+ * one JSON file per partner.
+ * <p>
+ * Bodies are content-addressed: every distinct body is appended once as a body record keyed by its
+ * {@link CrawledPage#getContentHash() content hash}. Every page is appended as a page record holding its metadata,
+ * response headers, links and paragraphs and the hash of its body, so a page whose body is already stored, e.g. a
+ * sub-page shared by several partners, costs a small page record only. Records go to the current segment, a new
+ * segment is started once a segment reaches {@code crawlStoreSegmentBytes}. Page metadata is deflate-compressed,
+ * bodies are written in the compressed form the page already holds.
+ * <p>
+ * An offset index keyed by partner key and URL, and one keyed by content hash, are kept in memory and appended to
+ * an index file, so the pages of a partner are read straight from the memory-mapped segments without scanning or
+ * parsing anything else. Storing a partner again replaces its pages in the index, the old records stay in the
+ * segments unreferenced. Pages can also be appended to a key batch by batch and a key can be removed, which the
+ * crawl journal uses for the pages of the sites it is crawling.
+ * <p>
+ * Unreferenced records are reclaimed by {@link #compact()}, which copies the referenced records to new segments,
+ * replaces the index and deletes the old segments. The store is compacted on open once more than half of the
+ * segment bytes are unreferenced.
+ * <p>
+ * Records are checksummed and synced to disk before the index entries referring to them, the index is synced
+ * after every write. On open, records written after the last index entry, e.g. right before a crash, are
+ * recovered from the segment tails, and a torn record at the end of the last segment is cut off.
+ */
+public class CrawlStore implements Closeable {
+
+    private static final int RECORD_MAGIC = 0x43525333; // "CRS3"
+    private static final int RECORD_HEADER_BYTES = 12; // Magic, content length and CRC32 of the content
+    private static final byte FLAG_FIRST_OF_PARTNER = 1; // The record starts a new set of pages of its partner
+    private static final byte RECORD_PAGE = 0;
+    private static final byte RECORD_BODY = 1;
+    private static final byte INDEX_REPLACE_PARTNER = 0;
+    private static final byte INDEX_PAGE = 1;
+    private static final byte INDEX_BODY = 2;
+    private static final byte INDEX_REMOVE_PARTNER = 3;
+    private static final byte INDEX_BASE_SEGMENT = 4; // Written first by a compaction, older segments are obsolete
+    private static final double COMPACTION_GARBAGE_RATIO = 0.5; // Unreferenced share of the bytes that triggers it
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final String INDEX_FILE = "index.dat";
+    private static final int LOCATION_BYTES = 4 + 8 + 4; // Segment, offset and length in an index entry
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    // Locations of the pages of every partner in write order, each map is replaced as a whole on change
+    private final ConcurrentMap<String, Map<String, Location>> index = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Location> bodies = new ConcurrentHashMap<>(); // Body records by content hash
+    private final ConcurrentMap<Integer, MappedByteBuffer> mappedSegments = new ConcurrentHashMap<>();
+    private int activeSegment;
+    private long activeSegmentSize;
+    private FileChannel activeChannel;
+    private FileChannel indexChannel;
+    private DataOutputStream indexOut;
+    private int baseSegment; // Segments below it were replaced by a compaction
+
+    private CrawlStore(Path directory, long maxSegmentBytes) {
+        this.directory = directory;
+        this.maxSegmentBytes = Math.max(1, Math.min(Integer.MAX_VALUE, maxSegmentBytes)); // A segment is mapped as a whole
+    }
+
+    /**
+     * Opens the store configured by {@code crawlStoreDirectory}, creating it if it does not exist.
+     *
+     * @param crawlerConfig The configuration holding the directory and the segment size.
+     * @return The open store.
+     * @throws IOException If the store cannot be read or created.
+     */
+    public static CrawlStore open(CrawlerConfig crawlerConfig) throws IOException {
+        return open(crawlerConfig.crawlStoreDirectory, crawlerConfig.crawlStoreSegmentBytes);
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if it does not exist.
+     *
+     * @param directory       The directory of the segments and the index.
+     * @param maxSegmentBytes The size after which a new segment is started.
+     * @return The open store.
+     * @throws IOException If the store cannot be read or created.
+     */
+    public static CrawlStore open(String directory, long maxSegmentBytes) throws IOException {
+        CrawlStore crawlStore = new CrawlStore(Paths.get(directory), maxSegmentBytes);
+        crawlStore.load();
+        return crawlStore;
+    }
+
+    private void load() throws IOException {
+        Files.createDirectories(directory);
+        Map<String, Map<String, Location>> loaded = new HashMap<>();
+        Map<Integer, Long> indexedEnd = new HashMap<>();
+        Path indexPath = directory.resolve(INDEX_FILE);
+        long validIndexBytes = readIndex(indexPath, loaded, indexedEnd);
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (channel.size() > validIndexBytes) {
+                channel.truncate(validIndexBytes); // Torn entry of an interrupted write
+            }
+        }
+        openIndex(indexPath);
+
+        List<Integer> segments = listSegments();
+        while (!segments.isEmpty() && segments.get(0) < baseSegment) {
+            Files.delete(segmentPath(segments.remove(0))); // Left behind by a compaction that was interrupted
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            int segment = segments.get(i);
+            recoverSegment(segment, indexedEnd.getOrDefault(segment, 0L), i == segments.size() - 1, loaded);
+        }
+        syncIndex();
+        loaded.forEach((partnerKey, locations) -> index.put(partnerKey, Collections.unmodifiableMap(locations)));
+
+        activeSegment = segments.isEmpty() ? Math.max(1, baseSegment) : segments.get(segments.size() - 1);
+        openActiveSegment();
+
+        long segmentBytes = 0;
+        for (int segment : segments) {
+            segmentBytes += Files.size(segmentPath(segment));
+        }
+        if (segmentBytes - referencedBytes() > segmentBytes * COMPACTION_GARBAGE_RATIO) {
+            compact();
+        }
+    }
+
+    private void openIndex(Path indexPath) throws IOException {
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        indexOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(indexChannel)));
+    }
+
+    private void syncIndex() throws IOException {
+        indexOut.flush();
+        indexChannel.force(false);
+    }
+
+    /**
+     * Returns the bytes of the indexed page records and of the body records they refer to. Reads the page records,
+     * but not the bodies.
+     */
+    private long referencedBytes() throws IOException {
+        long bytes = 0;
+        Set<String> referencedBodies = new HashSet<>();
+        for (Map<String, Location> locations : index.values()) {
+            for (Location location : locations.values()) {
+                bytes += location.length;
+                String contentHash = pageContentHash(readContent(location));
+                Location body = bodies.get(contentHash);
+                if (body != null && referencedBodies.add(contentHash)) {
+                    bytes += body.length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the index file into the locations per partner.
+     *
+     * @return The length of the complete entries, a torn entry at the end is not counted.
+     */
+    private long readIndex(Path indexPath, Map<String, Map<String, Location>> loaded, Map<Integer, Long> indexedEnd)
+            throws IOException {
+        if (!Files.exists(indexPath)) {
+            return 0;
+        }
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            while (true) {
+                byte type = in.readByte();
+                byte[] key = readBytes(in); // Partner key, or content hash of a body
+                long entryBytes = 1 + 4 + key.length;
+                if (type == INDEX_BASE_SEGMENT) {
+                    baseSegment = Integer.parseInt(new String(key, StandardCharsets.UTF_8));
+                } else if (type == INDEX_REPLACE_PARTNER) {
+                    loaded.put(new String(key, StandardCharsets.UTF_8), new LinkedHashMap<>());
+                } else if (type == INDEX_REMOVE_PARTNER) {
+                    loaded.remove(new String(key, StandardCharsets.UTF_8));
+                } else if (type == INDEX_BODY) {
+                    Location location = readLocation(in);
+                    entryBytes += LOCATION_BYTES;
+                    bodies.put(new String(key, StandardCharsets.UTF_8), location);
+                    indexedEnd.merge(location.segment, location.offset + location.length, Math::max);
+                } else {
+                    byte[] url = readBytes(in);
+                    Location location = readLocation(in);
+                    entryBytes += 4 + url.length + LOCATION_BYTES;
+                    loaded.computeIfAbsent(new String(key, StandardCharsets.UTF_8), partnerKey -> new LinkedHashMap<>())
+                            .put(new String(url, StandardCharsets.UTF_8), location);
+                    indexedEnd.merge(location.segment, location.offset + location.length, Math::max);
+                }
+                validBytes += entryBytes;
+            }
+        } catch (EOFException e) {
+            // End of the index, possibly in the middle of a torn entry
+        }
+        return validBytes;
+    }
+
+    /**
+     * Indexes the valid records of a segment behind the last indexed one and cuts off a torn record at the
+     * end of the last segment.
+     */
+    private void recoverSegment(int segment, long from, boolean last, Map<String, Map<String, Location>> loaded)
+            throws IOException {
+        Path segmentPath = segmentPath(segment);
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long offset = from;
+            while (offset < size) {
+                Record record = readRecord(channel, offset, size);
+                if (record == null) {
+                    if (last) {
+                        System.out.println("Cutting off a torn record of the crawl store at " + segmentPath + ":" + offset);
+                        channel.truncate(offset);
+                    } else {
+                        System.err.println("Corrupt record in the crawl store at " + segmentPath + ":" + offset);
+                    }
+                    return;
+                }
+                Location location = new Location(segment, offset, record.length);
+                if (record.contentHash != null) {
+                    bodies.put(record.contentHash, location);
+                    writeBodyEntry(record.contentHash, location);
+                    offset += record.length;
+                    continue;
+                }
+                if (record.firstOfPartner) {
+                    loaded.put(record.partnerKey, new LinkedHashMap<>());
+                    writeReplaceEntry(record.partnerKey);
+                }
+                loaded.computeIfAbsent(record.partnerKey, key -> new LinkedHashMap<>()).put(record.url, location);
+                writePageEntry(record.partnerKey, record.url, location);
+                offset += record.length;
+            }
+        }
+    }
+
+    /**
+     * Reads the key and URL of a page record, or the content hash of a body record, at the offset.
+     * Returns null if there is no complete, valid record.
+     */
+    private static Record readRecord(FileChannel channel, long offset, long size) throws IOException {
+        if (size - offset < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(channel, header, offset);
+        header.flip();
+        int magic = header.getInt();
+        int contentLength = header.getInt();
+        int crc = header.getInt();
+        if (magic != RECORD_MAGIC || contentLength < 0 || size - offset - RECORD_HEADER_BYTES < contentLength) {
+            return null;
+        }
+        ByteBuffer content = ByteBuffer.allocate(contentLength);
+        readFully(channel, content, offset + RECORD_HEADER_BYTES);
+        if (crc32(content.array()) != crc) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content.array()));
+        if (in.readByte() == RECORD_BODY) {
+            return new Record(null, null, readString(in), false, RECORD_HEADER_BYTES + contentLength);
+        }
+        boolean firstOfPartner = (in.readByte() & FLAG_FIRST_OF_PARTNER) != 0;
+        String partnerKey = readString(in);
+        String url = readString(in);
+        return new Record(partnerKey, url, null, firstOfPartner, RECORD_HEADER_BYTES + contentLength);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void openActiveSegment() throws IOException {
+        activeChannel = FileChannel.open(segmentPath(activeSegment), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        activeSegmentSize = activeChannel.size();
+    }
+
+    /**
+     * Stores the pages of a partner, replacing the pages stored for it before. Only bodies that are not stored
+     * yet are written. The records are synced to disk before the index refers to them. Nothing is changed for an
+     * empty list.
+     *
+     * @param partnerKey The key of the business partner.
+     * @param pages      The crawled pages of the partner, null entries are skipped.
+     * @throws IOException If the pages cannot be written.
+     */
+    public synchronized void putPages(String partnerKey, List<CrawledPage> pages) throws IOException {
+        writePages(partnerKey, pages, true);
+    }
+
+    /**
+     * Adds pages to the pages stored for a key, replacing stored pages with the same URL. Used for pages that
+     * arrive one batch at a time, e.g. the pages of a site journaled while it is crawled.
+     *
+     * @param partnerKey The key the pages are stored under.
+     * @param pages      The pages to add, null entries are skipped.
+     * @throws IOException If the pages cannot be written.
+     */
+    public synchronized void appendPages(String partnerKey, List<CrawledPage> pages) throws IOException {
+        writePages(partnerKey, pages, false);
+    }
+
+    private void writePages(String partnerKey, List<CrawledPage> pages, boolean replace) throws IOException {
+        Map<String, Location> existing = index.get(partnerKey);
+        boolean first = replace || existing == null;
+        Map<String, Location> locations = new LinkedHashMap<>();
+        Map<String, Location> newBodies = new LinkedHashMap<>();
+        for (CrawledPage page : pages) {
+            if (page != null) {
+                String contentHash = page.getContentHash();
+                if (!bodies.containsKey(contentHash) && !newBodies.containsKey(contentHash)) {
+                    newBodies.put(contentHash, append(encodeBody(page)));
+                }
+                locations.put(page.getUrl(), append(encodePage(partnerKey, page, first && locations.isEmpty())));
+            }
+        }
+        if (locations.isEmpty()) {
+            return;
+        }
+        activeChannel.force(false);
+        for (Map.Entry<String, Location> entry : newBodies.entrySet()) {
+            writeBodyEntry(entry.getKey(), entry.getValue());
+        }
+        bodies.putAll(newBodies);
+        if (first) {
+            writeReplaceEntry(partnerKey);
+        }
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            writePageEntry(partnerKey, entry.getKey(), entry.getValue());
+        }
+        syncIndex();
+        if (!first) {
+            Map<String, Location> merged = new LinkedHashMap<>(existing);
+            merged.putAll(locations);
+            locations = merged;
+        }
+        index.put(partnerKey, Collections.unmodifiableMap(locations));
+    }
+
+    /**
+     * Removes the pages of a key from the index, their records stay in the segments unreferenced.
+     *
+     * @param partnerKey The key to remove.
+     * @throws IOException If the index entry cannot be written.
+     */
+    public synchronized void removePartner(String partnerKey) throws IOException {
+        if (index.remove(partnerKey) == null) {
+            return;
+        }
+        indexOut.writeByte(INDEX_REMOVE_PARTNER);
+        writeString(indexOut, partnerKey);
+        syncIndex();
+    }
+
+    /**
+     * Copies the records the index refers to into new segments, replaces the index with one of the copies and
+     * deletes the old segments. Records of replaced and removed pages and bodies no page refers to are dropped.
+     * <p>
+     * A crash before the new index is in place leaves the old index, the copies are then recovered as records
+     * written after it and replace the pages they were copied from. A crash after it leaves old segments behind,
+     * which are deleted on the next open. Must not run while pages are read, as old locations become invalid.
+     *
+     * @throws IOException If the records cannot be copied or the index cannot be replaced.
+     */
+    public synchronized void compact() throws IOException {
+        syncIndex();
+        activeChannel.force(false);
+        activeChannel.close();
+        List<Integer> oldSegments = listSegments();
+        int newBaseSegment = activeSegment + 1;
+        activeSegment = newBaseSegment;
+        openActiveSegment();
+
+        Map<String, Map<String, Location>> compacted = new LinkedHashMap<>();
+        Map<String, Location> compactedBodies = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Location>> partner : index.entrySet()) {
+            Map<String, Location> locations = new LinkedHashMap<>();
+            for (Map.Entry<String, Location> page : partner.getValue().entrySet()) {
+                byte[] content = readContent(page.getValue());
+                String contentHash = pageContentHash(content);
+                Location body = bodies.get(contentHash);
+                if (body != null && !compactedBodies.containsKey(contentHash)) {
+                    compactedBodies.put(contentHash, append(toRecord(readContent(body))));
+                }
+                content[1] = locations.isEmpty() ? FLAG_FIRST_OF_PARTNER : 0; // Recovered in order like a new store
+                locations.put(page.getKey(), append(toRecord(content)));
+            }
+            compacted.put(partner.getKey(), locations);
+        }
+        activeChannel.force(false);
+
+        Path indexPath = directory.resolve(INDEX_FILE);
+        Path tempPath = directory.resolve(INDEX_FILE + ".tmp");
+        indexOut.close();
+        Files.deleteIfExists(tempPath);
+        openIndex(tempPath);
+        indexOut.writeByte(INDEX_BASE_SEGMENT);
+        writeString(indexOut, Integer.toString(newBaseSegment));
+        for (Map.Entry<String, Location> body : compactedBodies.entrySet()) {
+            writeBodyEntry(body.getKey(), body.getValue());
+        }
+        for (Map.Entry<String, Map<String, Location>> partner : compacted.entrySet()) {
+            writeReplaceEntry(partner.getKey());
+            for (Map.Entry<String, Location> page : partner.getValue().entrySet()) {
+                writePageEntry(partner.getKey(), page.getKey(), page.getValue());
+            }
+        }
+        syncIndex();
+        indexOut.close();
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openIndex(indexPath);
+        baseSegment = newBaseSegment;
+
+        bodies.clear();
+        bodies.putAll(compactedBodies);
+        index.clear();
+        compacted.forEach((partnerKey, locations) -> index.put(partnerKey, Collections.unmodifiableMap(locations)));
+        for (int segment : oldSegments) {
+            mappedSegments.remove(segment);
+            Files.deleteIfExists(segmentPath(segment));
+        }
+    }
+
+    /**
+     * Reads the content hash of the body from the content of a page record.
+     */
+    private static String pageContentHash(byte[] content) throws IOException {
+        DataInputStream page = new DataInputStream(new ByteArrayInputStream(content));
+        page.readByte(); // Record type
+        page.readByte(); // Flags
+        readString(page); // Partner key
+        readString(page); // URL
+        page.skipBytes(page.readInt()); // Metadata
+        return readString(page);
+    }
+
+    private Location append(byte[] record) throws IOException {
+        if (activeSegmentSize > 0 && activeSegmentSize + record.length > maxSegmentBytes) {
+            activeChannel.force(false);
+            activeChannel.close();
+            activeSegment++;
+            openActiveSegment();
+        }
+        long offset = activeSegmentSize;
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            activeChannel.write(buffer, offset + buffer.position());
+        }
+        activeSegmentSize += record.length;
+        return new Location(activeSegment, offset, record.length);
+    }
+
+    private void writeReplaceEntry(String partnerKey) throws IOException {
+        indexOut.writeByte(INDEX_REPLACE_PARTNER);
+        writeString(indexOut, partnerKey);
+    }
+
+    private void writePageEntry(String partnerKey, String url, Location location) throws IOException {
+        indexOut.writeByte(INDEX_PAGE);
+        writeString(indexOut, partnerKey);
+        writeString(indexOut, url);
+        writeLocation(indexOut, location);
+    }
+
+    private void writeBodyEntry(String contentHash, Location location) throws IOException {
+        indexOut.writeByte(INDEX_BODY);
+        writeString(indexOut, contentHash);
+        writeLocation(indexOut, location);
+    }
+
+    private static void writeLocation(DataOutputStream out, Location location) throws IOException {
+        out.writeInt(location.segment);
+        out.writeLong(location.offset);
+        out.writeInt(location.length);
+    }
+
+    private static Location readLocation(DataInputStream in) throws IOException {
+        return new Location(in.readInt(), in.readLong(), in.readInt());
+    }
+
+    public boolean containsPartner(String partnerKey) {
+        return index.containsKey(partnerKey);
+    }
+
+    public Set<String> getPartnerKeys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * Returns the stored pages of a partner in the order they were stored without reading them. A page is read
+     * from its segment when it is {@link StoredPage#load() loaded}, pages that are never loaded are never read.
+     *
+     * @param partnerKey The key of the business partner.
+     * @return The pages, empty if none are stored for the partner.
+     */
+    public Stream<StoredPage> streamPages(String partnerKey) {
+        Map<String, Location> locations = index.get(partnerKey);
+        if (locations == null) {
+            return Stream.empty();
+        }
+        return new ArrayList<>(locations.entrySet()).stream()
+                .map(entry -> new StoredPage(entry.getKey(), () -> read(entry.getValue())));
+    }
+
+    /**
+     * Reads a single stored page of a partner.
+     *
+     * @return The page, or null if it is not stored.
+     * @throws IOException If the record cannot be read.
+     */
+    public CrawledPage getPage(String partnerKey, String url) throws IOException {
+        Map<String, Location> locations = index.get(partnerKey);
+        Location location = locations == null ? null : locations.get(url);
+        return location == null ? null : read(location);
+    }
+
+    /**
+     * Reads a page stored under any partner, for a page that several partners' websites link to. Looks the URL up
+     * in the index of every partner, which is only worth it for the few pages that are shared.
+     *
+     * @param url The URL of the page as it was stored.
+     * @return The page, or null if it is not stored.
+     * @throws IOException If the record cannot be read.
+     */
+    public CrawledPage findPage(String url) throws IOException {
+        for (Map<String, Location> locations : index.values()) {
+            Location location = locations.get(url);
+            if (location != null) {
+                return read(location);
+            }
+        }
+        return null;
+    }
+
+    private CrawledPage read(Location location) throws IOException {
+        DataInputStream page = new DataInputStream(new ByteArrayInputStream(readContent(location)));
+        page.readByte(); // Record type
+        page.readByte(); // Flags, only needed for recovery
+        readString(page); // Partner key
+        String url = readString(page);
+        byte[] metadataBytes = new byte[page.readInt()];
+        page.readFully(metadataBytes);
+        String contentHash = readString(page);
+
+        Location bodyLocation = bodies.get(contentHash);
+        if (bodyLocation == null) {
+            throw new IOException("Body " + contentHash + " of " + url + " is not stored");
+        }
+        DataInputStream body = new DataInputStream(new ByteArrayInputStream(readContent(bodyLocation)));
+        body.readByte(); // Record type
+        readString(body); // Content hash
+        int bodyLength = body.readInt();
+        byte[] compressedBody = new byte[body.readInt()];
+        body.readFully(compressedBody);
+
+        try (DataInputStream metadata = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(metadataBytes)))) {
+            int statusCode = metadata.readInt();
+            long fetchedAt = metadata.readLong();
+            long fetchMillis = metadata.readLong();
+            String route = readNullableString(metadata);
+            String charset = readNullableString(metadata);
+            int headerCount = metadata.readInt();
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(readString(metadata), readStrings(metadata));
+            }
+            List<String> links = readStrings(metadata);
+            List<String> paragraphs = readStrings(metadata);
+            return CrawledPage.fromCompressedBody(url, statusCode, fetchedAt, fetchMillis, route, compressedBody,
+                    bodyLength, contentHash, charset, headers, links, paragraphs);
+        }
+    }
+
+    /**
+     * Reads the content of the record at the location from the mapped segment and verifies its checksum.
+     */
+    private byte[] readContent(Location location) throws IOException {
+        ByteBuffer record = mapped(location.segment, location.offset + location.length).duplicate();
+        record.position((int) location.offset);
+        if (record.getInt() != RECORD_MAGIC) {
+            throw new IOException("No record in segment " + location.segment + " at " + location.offset);
+        }
+        byte[] content = new byte[record.getInt()];
+        int crc = record.getInt();
+        record.get(content);
+        if (crc32(content) != crc) {
+            throw new IOException("Corrupt record in segment " + location.segment + " at " + location.offset);
+        }
+        return content;
+    }
+
+    /**
+     * Returns a mapping of the segment that covers at least the given end. The active segment grows while
+     * it is written, it is mapped again once a record beyond the current mapping is read.
+     */
+    private MappedByteBuffer mapped(int segment, long end) throws IOException {
+        MappedByteBuffer buffer = mappedSegments.get(segment);
+        if (buffer != null && buffer.capacity() >= end) {
+            return buffer;
+        }
+        synchronized (mappedSegments) {
+            buffer = mappedSegments.get(segment);
+            if (buffer == null || buffer.capacity() < end) {
+                try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                mappedSegments.put(segment, buffer);
+            }
+            if (buffer.capacity() < end) {
+                throw new EOFException("Segment " + segment + " ends before " + end);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Encodes a page as a record: type, flags, partner key and URL, the deflated metadata, headers, links and
+     * paragraphs, and the content hash of the body.
+     */
+    private static byte[] encodePage(String partnerKey, CrawledPage page, boolean firstOfPartner) throws IOException {
+        ByteArrayOutputStream metadataBytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream metadata = new DataOutputStream(new DeflaterOutputStream(metadataBytes, deflater))) {
+            metadata.writeInt(page.getStatusCode());
+            metadata.writeLong(page.getFetchedAt());
+            metadata.writeLong(page.getFetchMillis());
+            writeNullableString(metadata, page.getRoute());
+            writeNullableString(metadata, page.getCharset());
+            metadata.writeInt(page.getHeaders().size());
+            for (Map.Entry<String, List<String>> header : page.getHeaders().entrySet()) {
+                writeString(metadata, header.getKey());
+                writeStrings(metadata, header.getValue());
+            }
+            writeStrings(metadata, page.getLinks());
+            writeStrings(metadata, page.getParagraphs());
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream contentBytes = new ByteArrayOutputStream(metadataBytes.size() + 256);
+        DataOutputStream content = new DataOutputStream(contentBytes);
+        content.writeByte(RECORD_PAGE);
+        content.writeByte(firstOfPartner ? FLAG_FIRST_OF_PARTNER : 0);
+        writeString(content, partnerKey);
+        writeString(content, page.getUrl());
+        content.writeInt(metadataBytes.size());
+        metadataBytes.writeTo(content);
+        writeString(content, page.getContentHash());
+        content.flush();
+        return toRecord(contentBytes.toByteArray());
+    }
+
+    /**
+     * Encodes the body of a page as a record: type, content hash and the compressed body.
+     */
+    private static byte[] encodeBody(CrawledPage page) throws IOException {
+        ByteArrayOutputStream contentBytes = new ByteArrayOutputStream(page.getCompressedLength() + 128);
+        DataOutputStream content = new DataOutputStream(contentBytes);
+        content.writeByte(RECORD_BODY);
+        writeString(content, page.getContentHash());
+        content.writeInt(page.getBodyLength());
+        content.writeInt(page.getCompressedLength());
+        content.write(page.getCompressedBody());
+        content.flush();
+        return toRecord(contentBytes.toByteArray());
+    }
+
+    private static byte[] toRecord(byte[] content) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + content.length);
+        record.putInt(RECORD_MAGIC);
+        record.putInt(content.length);
+        record.putInt(crc32(content));
+        record.put(content);
+        return record.array();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new EOFException("Negative length");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static int crc32(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        Set<Integer> segments = new TreeSet<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            segments.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                                    name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            // Not a segment of this store
+                        }
+                    });
+        }
+        return new ArrayList<>(segments);
+    }
+
+    /**
+     * Syncs the active segment and the index to disk and closes the store.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            syncIndex();
+            activeChannel.force(false);
+        } finally {
+            indexOut.close();
+            activeChannel.close();
+            mappedSegments.clear();
+        }
+    }
+
+    /**
+     * Where a record is stored: segment number, offset in the segment and record length.
+     */
+    private static class Location {
+        private final int segment;
+        private final long offset;
+        private final int length;
+
+        Location(int segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The key, URL and length of a page record, or the content hash and length of a body record, found while
+     * recovering a segment.
+     */
+    private static class Record {
+        private final String partnerKey;
+        private final String url;
+        private final String contentHash; // null for a page record
+        private final boolean firstOfPartner;
+        private final int length;
+
+        Record(String partnerKey, String url, String contentHash, boolean firstOfPartner, int length) {
+            this.partnerKey = partnerKey;
+            this.url = url;
+            this.contentHash = contentHash;
+            this.firstOfPartner = firstOfPartner;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package v2.crawler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import v2.Objects.BusinessPartner;
+import v2.Objects.CrawledPage;
+import v2.crawler.Journal.CrawlJournal;
+import v2.crawler.Journal.CrawlJournal.SiteJournal;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Crawls the websites of many business partners at once.
+ * At most {@code maxPartnersInFlight} partners are crawled concurrently, further partners are only started
+ * once a running crawl completes. Each partner is handed to the completion callback as soon as its crawl
+ * finishes, independent of the other partners. Partners that share a website are crawled once and all of
+ * them receive the pages of that crawl.
+ * With a {@link CrawlJournal} the state of every partner is journaled. Partners done in an interrupted run are
+ * skipped, unfinished partners are crawled again and take the pages done before from the journal.
+ */
+public class CrawlDriver {
+
+    private final Crawler crawler;
+    private final int maxPartnersInFlight;
+    private final boolean retryFailedPartners;
+    private final CrawlJournal crawlJournal; // null if the run is not journaled
+
+    public CrawlDriver(Crawler crawler, CrawlerConfig crawlerConfig) {
+        this(crawler, crawlerConfig, null);
+    }
+
+    /**
+     * @param crawler       The crawler the sites are crawled with.
+     * @param crawlerConfig The configuration holding the partner concurrency.
+     * @param crawlJournal  The journal the partner and page states are recorded in, or null.
+     */
+    public CrawlDriver(Crawler crawler, CrawlerConfig crawlerConfig, CrawlJournal crawlJournal) {
+        this.crawler = crawler;
+        this.maxPartnersInFlight = Math.max(1, crawlerConfig.maxPartnersInFlight);
+        this.retryFailedPartners = crawlerConfig.retryFailedPartners;
+        this.crawlJournal = crawlJournal;
+    }
+
+    /**
+     * Crawls the websites of all business partners and blocks until every crawl has completed.
+     *
+     * @param businessPartners  The business partners whose websites are crawled.
+     * @param onPartnerCrawled  Called once per partner with the crawled pages (empty if nothing was crawled).
+     *                          Calls are made from a single writer thread, one partner at a time. A partner only
+     *                          counts as done in the journal once the call returned.
+     */
+    public void crawlAll(List<BusinessPartner> businessPartners,
+                         BiConsumer<BusinessPartner, List<CrawledPage>> onPartnerCrawled) {
+        Semaphore partnerPermits = new Semaphore(maxPartnersInFlight);
+        ExecutorService completionExecutor = Executors.newSingleThreadExecutor();
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+
+        Map<String, List<BusinessPartner>> partnersBySite = new LinkedHashMap<>();
+        int skippedPartners = 0;
+        for (BusinessPartner businessPartner : businessPartners) {
+            if (isFinished(businessPartner)) {
+                skippedPartners++;
+                continue;
+            }
+            String siteKey = siteKey(businessPartner.getWebsite());
+            if (crawlJournal != null && crawlJournal.getPartnerState(businessPartner.getBusinessPartnerKey()) == null) {
+                crawlJournal.recordPartner(businessPartner.getBusinessPartnerKey(), siteKey, CrawlJournal.PENDING, null);
+            }
+            partnersBySite.computeIfAbsent(siteKey, key -> new ArrayList<>()).add(businessPartner);
+        }
+        if (skippedPartners > 0) {
+            System.out.println("Resuming crawl run, skipping " + skippedPartners + " partners finished before");
+        }
+
+        boolean completed = false;
+        try {
+            for (Map.Entry<String, List<BusinessPartner>> site : partnersBySite.entrySet()) {
+                partnerPermits.acquire(); // Backpressure: wait until a partner slot is free
+                String siteKey = site.getKey();
+                List<BusinessPartner> sitePartners = site.getValue();
+                String website = sitePartners.get(0).getWebsite();
+                System.out.println("Crawling website: " + website);
+                recordPartners(sitePartners, siteKey, CrawlJournal.IN_FLIGHT, null);
+                SiteJournal siteJournal = crawlJournal != null ? crawlJournal.site(siteKey) : SiteJournal.NONE;
+
+                CompletableFuture<Void> completion = crawler.crawlFullPage(website, siteJournal)
+                        .exceptionally(ex -> Collections.emptyList())
+                        .thenAcceptAsync(pages -> {
+                            try {
+                                for (BusinessPartner businessPartner : sitePartners) {
+                                    completePartner(businessPartner, siteKey, pages, onPartnerCrawled);
+                                }
+                                siteJournal.release(); // The partners hold the pages now
+                            } finally {
+                                partnerPermits.release();
+                            }
+                        }, completionExecutor)
+                        .exceptionally(ex -> {
+                            System.err.println("Failed to handle crawled data for: " + website + " - " + ex.getMessage());
+                            return null;
+                        });
+                completions.add(completion);
+            }
+            CompletableFuture.allOf(completions.toArray(new CompletableFuture[0])).join();
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            completionExecutor.shutdown();
+            try {
+                completionExecutor.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (completed && crawlJournal != null) {
+                crawlJournal.completeRun();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the journal holds the partner as done, or as failed and failed partners are not retried.
+     */
+    private boolean isFinished(BusinessPartner businessPartner) {
+        if (crawlJournal == null) {
+            return false;
+        }
+        String state = crawlJournal.getPartnerState(businessPartner.getBusinessPartnerKey());
+        return CrawlJournal.DONE.equals(state) || (CrawlJournal.FAILED.equals(state) && !retryFailedPartners);
+    }
+
+    /**
+     * Hands the crawled pages to the callback and journals the partner as done, or as failed if nothing
+     * was crawled or the callback threw. A failing callback is logged and not rethrown, so the other partners
+     * of the site are still handed their pages.
+     */
+    private void completePartner(BusinessPartner businessPartner, String siteKey, List<CrawledPage> pages,
+                                 BiConsumer<BusinessPartner, List<CrawledPage>> onPartnerCrawled) {
+        try {
+            onPartnerCrawled.accept(businessPartner, pages);
+            if (pages.isEmpty()) {
+                recordPartners(List.of(businessPartner), siteKey, CrawlJournal.FAILED, "No pages crawled");
+            } else {
+                recordPartners(List.of(businessPartner), siteKey, CrawlJournal.DONE, null);
+            }
+        } catch (RuntimeException e) {
+            recordPartners(List.of(businessPartner), siteKey, CrawlJournal.FAILED, e.getClass().getSimpleName() + ": " + e.getMessage());
+            System.err.println("Failed to handle crawled data for: " + businessPartner.getBusinessPartnerKey() + " - " + e.getMessage());
+        }
+    }
+
+    private void recordPartners(List<BusinessPartner> partners, String siteKey, String state, String reason) {
+        if (crawlJournal != null) {
+            for (BusinessPartner businessPartner : partners) {
+                crawlJournal.recordPartner(businessPartner.getBusinessPartnerKey(), siteKey, state, reason);
+            }
+        }
+    }
+
+    /**
+     * Key under which partners count as sharing a website: the normalized URL without scheme and "www.".
+     */
+    static String siteKey(String website) {
+        if (website == null || website.isBlank()) {
+            return "";
+        }
+        String key = UrlNormalizer.normalize(website).replaceFirst("^[a-zA-Z][a-zA-Z0-9+.-]*://", "");
+        return key.startsWith("www.") ? key.substring(4) : key;
+    }
+}
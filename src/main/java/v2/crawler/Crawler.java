@@ -1,94 +1,276 @@
 package v2.crawler;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.jsoup.nodes.Document;
-
+import v2.Objects.CrawledPage;
+import v2.crawler.Discovery.RobotsRules;
+import v2.crawler.Discovery.SiteDiscovery;
+import v2.crawler.Journal.CrawlJournal.SiteJournal;
+import v2.crawler.Selenium.SeleniumConnection;
+import v2.crawler.Selenium.WebDriverPool;
+import v2.crawler.Transport.CookieJar;
+import v2.crawler.Transport.PageTransport;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
 import v2.dataProcessing.HtmlProcessor;
 
 /**
  * A web crawler that fetches web pages and their relevant data.
  * It uses multi-threading and asynchronous calls for efficient crawling of web resources.
+ * All fetches go through a {@link FetchScheduler} which enforces per-host politeness and a global in-flight cap.
+ * A run-wide {@link UrlSeenSet} makes sure no URL is fetched twice by the same crawler. A page that another site
+ * already fetched is taken from the {@link #setSharedPageLookup(Function) shared page lookup} instead.
  */
 public class Crawler {
 
-    private static final int NUMBER_OF_THREADS = 50; // Number of threads in the thread pool
-    private ExecutorService executorService; // Executor service for managing threads
+    private CrawlerConfig crawlerConfig;
+    private FetchEngine fetchEngine; // Fetch and parse executors
+    private FetchScheduler fetchScheduler; // Host-keyed frontier all fetches go through
+    private PageTransport transport; // HTTP transport shared by all site crawls
+    private CookieJar cookieJar; // Cookies of the sites being crawled, by registrable domain
+    private UrlSeenSet seenUrls; // URLs fetched in this run, over all sites
+    private Function<String, CrawledPage> sharedPageLookup = url -> null; // Pages fetched for other sites
+    private SiteDiscovery siteDiscovery; // robots.txt rules and sitemap links
+    private HostHealth hostHealth; // Negative DNS cache, circuit breakers and latencies of all hosts
+    private RetryPolicy retryPolicy; // Retries of transient fetch failures
+    private WebDriverPool webDriverPool; // Headless browsers for the Selenium fallback
+    private SeleniumConnection seleniumConnection;
+    private FallbackPolicy fallbackPolicy; // Which pages are rendered with Selenium
 
     /**
      * Constructor for Crawler.
-     * Initializes the thread pool.
+     * Initializes the fetch engine and the fetch scheduler with the default crawler configuration.
      */
     public Crawler() {
-        this.executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        this(new ConfigManager().getCrawlerConfig());
+    }
+
+    /**
+     * Constructor for Crawler.
+     * Initializes the fetch engine and the fetch scheduler.
+     *
+     * @param crawlerConfig The configuration holding fetch mode, concurrency limits and host delays.
+     */
+    public Crawler(CrawlerConfig crawlerConfig) {
+        this.crawlerConfig = crawlerConfig;
+        this.fetchEngine = new FetchEngine(crawlerConfig);
+        this.fetchScheduler = new FetchScheduler(fetchEngine, crawlerConfig);
+        this.cookieJar = new CookieJar();
+        this.transport = PageTransport.create(crawlerConfig, cookieJar);
+        this.seenUrls = new UrlSeenSet(crawlerConfig.expectedUrlsPerRun);
+        this.siteDiscovery = new SiteDiscovery(crawlerConfig);
+        this.hostHealth = new HostHealth(crawlerConfig);
+        this.retryPolicy = new RetryPolicy(crawlerConfig);
+        this.webDriverPool = new WebDriverPool(crawlerConfig);
+        this.seleniumConnection = new SeleniumConnection(webDriverPool, crawlerConfig.webDriverBorrowTimeoutMillis);
+        this.fallbackPolicy = new FallbackPolicy();
+        if (crawlerConfig.warmUpWebDrivers) {
+            webDriverPool.warmUp();
+        }
     }
 
     /**
      * Crawls the full page starting from a base URL.
-     * It fetches the base page and then all linked pages within it asynchronously.
+     * It fetches the base page and then follows the keyword links breadth-first, level by level, up to
+     * {@code maxCrawlDepth} clicks away from the base page. The keyword pages listed in the site's sitemaps are
+     * crawled on the first level together with the links of the base page. Within a level the links are fetched
+     * in the order of their URL priority. The crawl stops early once {@code maxPagesPerSite} pages or
+     * {@code maxBytesPerSite} body bytes have been fetched. Sub-pages already fetched in this run for another site
+     * are taken from the shared page lookup and only fetched again if it does not have them. Pages disallowed by
+     * robots.txt are never queued.
      *
      * @param baseUrl The base URL from which to start crawling.
-     * @return A CompletableFuture of a list of Document objects representing all fetched pages.
+     * @return A CompletableFuture of a list of all fetched pages, the base page first.
      */
-    public CompletableFuture<List<Document>> crawlFullPage(String baseUrl) {
-        CompletableFuture<List<Document>> result = new CompletableFuture<>();
-        JsoupConnection jsoupConnection = new JsoupConnection();
-
-        jsoupConnection.fetchHtmlDocument(baseUrl).thenAccept(baseDocument -> {
-            if (baseDocument != null) {
-                Set<String> links = HtmlProcessor.getAllLinksWithKeywords(baseDocument);
-                List<CompletableFuture<Document>> futures = links.stream()
-                        .map(jsoupConnection::fetchHtmlDocument)
-                        .collect(Collectors.toList());
+    public CompletableFuture<List<CrawledPage>> crawlFullPage(String baseUrl) {
+        return crawlFullPage(baseUrl, SiteJournal.NONE);
+    }
 
-                CompletableFuture<Void> allFutures = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
-                allFutures.thenAccept(v -> {
-                    List<Document> documents = futures.stream()
-                        .map(CompletableFuture::join) // This will block until all futures complete
-                        .filter(Objects::nonNull) // Filter out null documents
-                        .collect(Collectors.toList());
-                    documents.add(0, baseDocument); // Add the base document at the beginning
-                    result.complete(documents);
-                }).exceptionally(ex -> {
-                    // Log and handle the exception silently
-                    result.complete(Collections.singletonList(baseDocument)); // Return only the base document
-                    return null;
-                });
-            } else {
-                // Handle the failure silently
-                System.out.println("Failed to fetch base document: " + baseUrl);
-
-                result.complete(Collections.emptyList());
+    /**
+     * Crawls the full page starting from a base URL like {@link #crawlFullPage(String)}, resuming the crawl of the
+     * site from its journal. Pages done in the interrupted run are taken from the journal instead of being fetched,
+     * pages that failed are fetched again, every page fetched now is recorded.
+     *
+     * @param baseUrl     The base URL from which to start crawling.
+     * @param siteJournal The journal of the site.
+     * @return A CompletableFuture of a list of all fetched and resumed pages, the base page first.
+     */
+    public CompletableFuture<List<CrawledPage>> crawlFullPage(String baseUrl, SiteJournal siteJournal) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        JsoupConnection jsoupConnection = new JsoupConnection(fetchScheduler, fetchEngine.getParseExecutor(),
+                fetchEngine.getRenderExecutor(), transport,
+                hostHealth, retryPolicy, seleniumConnection, fallbackPolicy);
+        jsoupConnection.setByteBudget(crawlerConfig.maxBytesPerSite);
+        jsoupConnection.setBodyLimits(crawlerConfig.maxPageBytes, crawlerConfig.maxResourceBytes);
+        jsoupConnection.setExtractionMode(crawlerConfig.extractionMode);
+
+        return siteDiscovery.robotsFor(baseUrl, jsoupConnection).thenCompose(robotsRules -> {
+            if (!robotsRules.isAllowed(baseUrl)) {
+                System.out.println("Base document disallowed by robots.txt: " + baseUrl);
+                return CompletableFuture.completedFuture(Collections.<CrawledPage>emptyList());
             }
+            seenUrls.add(baseUrl);
+            return fetchPage(jsoupConnection, siteJournal, baseUrl).thenCompose(basePage -> {
+                if (basePage == null) {
+                    // Handle the failure silently
+                    System.out.println("Failed to fetch base document: " + baseUrl);
+                    return CompletableFuture.completedFuture(Collections.<CrawledPage>emptyList());
+                }
+                seenUrls.add(basePage.getUrl()); // The URL after redirects
+                SiteCrawl siteCrawl = new SiteCrawl(jsoupConnection, siteJournal, basePage);
+                siteCrawl.siteUrls.add(UrlNormalizer.normalize(baseUrl));
+
+                // Redirects can lead to another host with its own robots.txt
+                return siteDiscovery.robotsFor(basePage.getUrl(), jsoupConnection)
+                        .thenCompose(siteRules -> {
+                            siteCrawl.robotsRules = siteRules;
+                            return siteDiscovery.discoverSitemapLinks(siteCrawl.siteBaseUrl, siteRules, jsoupConnection);
+                        })
+                        .thenCompose(sitemapLinks -> siteCrawl.crawlLevel(Collections.singletonList(basePage), sitemapLinks, 1))
+                        .handle((v, ex) -> {
+                            cookieJar.removeSite(baseUrl);
+                            cookieJar.removeSite(basePage.getUrl());
+                            return siteCrawl.pages;
+                        });
+            });
         }).exceptionally(ex -> {
             // Handle the exception silently
             System.out.println("Failed to fetch base document: " + baseUrl + " - " + ex.getMessage());
-            result.complete(Collections.emptyList());
+            return Collections.emptyList();
+        });
+    }
+
+    /**
+     * Takes a page from the site journal if it was done in the interrupted run, otherwise fetches it
+     * and records the outcome.
+     */
+    private static CompletableFuture<CrawledPage> fetchPage(JsoupConnection jsoupConnection, SiteJournal siteJournal,
+                                                            String url) {
+        CrawledPage completedPage = siteJournal.getCompletedPage(url);
+        if (completedPage != null) {
+            jsoupConnection.addResumedBytes(completedPage.getBodyLength());
+            return CompletableFuture.completedFuture(completedPage);
+        }
+        return jsoupConnection.fetchPage(url).handle((page, ex) -> {
+            if (page != null) {
+                siteJournal.pageDone(url, page);
+                return page;
+            }
+            String reason = ex != null ? ex.getClass().getSimpleName() + ": " + ex.getMessage() : jsoupConnection.getFailureReason(url);
+            if (reason != null) {
+                siteJournal.pageFailed(url, reason);
+            }
             return null;
         });
-        return result;
     }
 
     /**
-     * Closes the executor service and releases resources.
+     * State of the breadth-first crawl of a single site.
      */
-    public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
+    private class SiteCrawl {
+        private final JsoupConnection jsoupConnection;
+        private final SiteJournal siteJournal;
+        private final String siteBaseUrl;
+        private final List<CrawledPage> pages = new ArrayList<>();
+        private final Set<String> siteUrls = new HashSet<>(); // Normalized URLs queued for this site
+        private RobotsRules robotsRules = RobotsRules.ALLOW_ALL;
+
+        SiteCrawl(JsoupConnection jsoupConnection, SiteJournal siteJournal, CrawledPage basePage) {
+            this.jsoupConnection = jsoupConnection;
+            this.siteJournal = siteJournal;
+            this.siteBaseUrl = basePage.getUrl();
+            this.pages.add(basePage);
+            this.siteUrls.add(UrlNormalizer.normalize(basePage.getUrl()));
+        }
+
+        /**
+         * Fetches the unvisited keyword links of the given pages and continues with the next level.
+         *
+         * @param parents         The pages fetched on the previous level.
+         * @param discoveredLinks Further links to fetch on this level, e.g. from the sitemaps.
+         * @param depth           The depth of the pages fetched on this level, the base page has depth 0.
+         */
+        CompletableFuture<Void> crawlLevel(List<CrawledPage> parents, List<String> discoveredLinks, int depth) {
+            int remainingPages = crawlerConfig.maxPagesPerSite - pages.size();
+            if (depth > crawlerConfig.maxCrawlDepth || remainingPages <= 0 || jsoupConnection.isByteBudgetExhausted()) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            List<String> links = Stream.concat(
+                            parents.stream().flatMap(parent -> HtmlProcessor.getAllLinksWithKeywords(parent, siteBaseUrl).stream()),
+                            discoveredLinks.stream())
+                    .distinct()
+                    .filter(robotsRules::isAllowed)
+                    .filter(url -> !siteUrls.contains(UrlNormalizer.normalize(url)))
+                    .sorted(Comparator.comparingInt(HtmlProcessor::getUrlPriority))
+                    .limit(remainingPages)
+                    .filter(url -> siteUrls.add(UrlNormalizer.normalize(url))) // Links cut by the limit stay fetchable
+                    .collect(Collectors.toList());
+            if (links.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            // Queued in priority order, the scheduler keeps the order within the host
+            List<CompletableFuture<CrawledPage>> futures = links.stream()
+                    .map(this::fetchOrShare)
+                    .collect(Collectors.toList());
+
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenCompose(v -> {
+                List<CrawledPage> levelPages = futures.stream()
+                        .map(CompletableFuture::join)
+                        .filter(Objects::nonNull) // Filter out failed and skipped pages
+                        .collect(Collectors.toList());
+                pages.addAll(levelPages);
+                return crawlLevel(levelPages, Collections.emptyList(), depth + 1);
+            });
+        }
+
+        /**
+         * Fetches a link unless it was already fetched in this run for another site, whose page is then shared.
+         * A shared page that cannot be looked up, e.g. because the other site is still being crawled, is fetched.
+         */
+        private CompletableFuture<CrawledPage> fetchOrShare(String link) {
+            if (!seenUrls.add(link)) {
+                CrawledPage sharedPage = sharedPageLookup.apply(link);
+                if (sharedPage != null) {
+                    return CompletableFuture.completedFuture(sharedPage);
+                }
             }
-        } catch (InterruptedException ie) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
+            return fetchPage(jsoupConnection, siteJournal, link);
         }
     }
+
+    /**
+     * Sets where pages already fetched in this run for another site are read from, e.g. the crawl store.
+     *
+     * @param sharedPageLookup Returns the page of a URL, or null if it is not available.
+     */
+    public void setSharedPageLookup(Function<String, CrawledPage> sharedPageLookup) {
+        this.sharedPageLookup = sharedPageLookup;
+    }
+
+    public FallbackPolicy getFallbackPolicy() {
+        return fallbackPolicy;
+    }
+
+    /**
+     * Closes the fetch scheduler and the executors and releases resources.
+     */
+    public void shutdown() {
+        fetchScheduler.shutdown();
+        fetchEngine.shutdown();
+        webDriverPool.shutdown();
+    }
 }
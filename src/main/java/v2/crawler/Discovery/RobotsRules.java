@@ -0,0 +1,143 @@
+package v2.crawler.Discovery;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The robots.txt rules that apply to the crawler on one host, parsed once into a matcher.
+ * Only the groups for user-agent {@code *} apply. The most specific (longest) matching rule decides,
+ * on a tie Allow wins. Patterns support the {@code *} wildcard and the {@code $} end anchor.
+ */
+public class RobotsRules {
+
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(Collections.emptyList(), Collections.emptyList());
+
+    private final List<Rule> rules;
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, List<String> sitemaps) {
+        this.rules = rules;
+        this.sitemaps = sitemaps;
+    }
+
+    /**
+     * Parses the content of a robots.txt file.
+     *
+     * @param content The robots.txt content.
+     * @return The rules for user-agent {@code *} and the sitemaps the file lists.
+     */
+    public static RobotsRules parse(String content) {
+        List<Rule> rules = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        boolean groupApplies = false;
+        boolean readingAgents = false; // Consecutive user-agent lines form one group
+
+        for (String rawLine : content.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (key) {
+                case "user-agent":
+                    if (!readingAgents) {
+                        groupApplies = false;
+                        readingAgents = true;
+                    }
+                    groupApplies |= value.equals("*");
+                    break;
+                case "allow":
+                case "disallow":
+                    readingAgents = false;
+                    if (groupApplies && !value.isEmpty()) {
+                        rules.add(new Rule(value, key.equals("allow")));
+                    }
+                    break;
+                case "sitemap":
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                    break;
+                default:
+                    readingAgents = false;
+            }
+        }
+        return new RobotsRules(rules, sitemaps);
+    }
+
+    /**
+     * Checks whether the crawler may fetch the given URL.
+     *
+     * @param url The absolute URL to check, only path and query are matched.
+     * @return true if no rule disallows the URL.
+     */
+    public boolean isAllowed(String url) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        String path;
+        try {
+            URI uri = URI.create(url.trim());
+            path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            if (uri.getRawQuery() != null) {
+                path += "?" + uri.getRawQuery();
+            }
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+
+        Rule decisive = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (decisive == null
+                    || rule.length > decisive.length
+                    || (rule.length == decisive.length && rule.allow))) {
+                decisive = rule;
+            }
+        }
+        return decisive == null || decisive.allow;
+    }
+
+    /**
+     * The sitemap URLs listed in the robots.txt file.
+     */
+    public List<String> getSitemaps() {
+        return Collections.unmodifiableList(sitemaps);
+    }
+
+    private static class Rule {
+        private final Pattern pattern;
+        private final int length;
+        private final boolean allow;
+
+        Rule(String path, boolean allow) {
+            this.allow = allow;
+            this.length = path.length();
+            boolean anchored = path.endsWith("$");
+            String body = anchored ? path.substring(0, path.length() - 1) : path;
+
+            StringBuilder regex = new StringBuilder();
+            for (String part : body.split("\\*", -1)) {
+                if (regex.length() > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(part));
+            }
+            if (anchored) {
+                regex.append('$');
+            }
+            this.pattern = Pattern.compile(regex.toString());
+        }
+
+        boolean matches(String path) {
+            return pattern.matcher(path).lookingAt();
+        }
+    }
+}
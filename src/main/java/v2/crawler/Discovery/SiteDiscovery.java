@@ -0,0 +1,157 @@
+package v2.crawler.Discovery;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import v2.crawler.JsoupConnection;
+import v2.crawler.Transport.FetchResponse;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+import v2.dataProcessing.HtmlProcessor;
+import v2.dataProcessing.KeywordManager;
+
+/**
+ * Discovers candidate pages of a site from robots.txt and sitemap.xml instead of the homepage DOM.
+ * robots.txt is fetched once per host and run, its parsed rules are cached and shared by all site crawls.
+ * Sitemaps and sitemap indexes are streamed and their page URLs matched against the crawling keywords.
+ */
+public class SiteDiscovery {
+
+    private final CrawlerConfig crawlerConfig;
+    private final ConcurrentMap<String, CompletableFuture<RobotsRules>> robotsByOrigin = new ConcurrentHashMap<>();
+
+    public SiteDiscovery(CrawlerConfig crawlerConfig) {
+        this.crawlerConfig = crawlerConfig;
+    }
+
+    /**
+     * Returns the robots.txt rules for the host of the URL, fetching robots.txt on the first request for the host.
+     * A missing or unreadable robots.txt allows everything.
+     *
+     * @param url             Any URL of the host.
+     * @param jsoupConnection The connection used for the fetch.
+     * @return A CompletableFuture of the rules, never completed exceptionally.
+     */
+    public CompletableFuture<RobotsRules> robotsFor(String url, JsoupConnection jsoupConnection) {
+        String origin = originOf(url);
+        if (!crawlerConfig.useRobotsTxt || origin == null) {
+            return CompletableFuture.completedFuture(RobotsRules.ALLOW_ALL);
+        }
+        return robotsByOrigin.computeIfAbsent(origin, key -> jsoupConnection.fetchResource(key + "/robots.txt")
+                .thenApply(response -> response == null
+                        ? RobotsRules.ALLOW_ALL
+                        : RobotsRules.parse(new String(response.getBody(), StandardCharsets.UTF_8)))
+                .exceptionally(ex -> RobotsRules.ALLOW_ALL));
+    }
+
+    /**
+     * Collects the page URLs listed in the sitemaps of a site that contain a crawling keyword, stay below the site
+     * URL and are allowed by robots.txt. The sitemaps listed in robots.txt are read, or /sitemap.xml if it lists none.
+     * At most {@code maxSitemapFetches} sitemap files are fetched and {@code maxSitemapUrls} URLs returned.
+     *
+     * @param siteBaseUrl     The URL the collected pages have to start with.
+     * @param robotsRules     The robots.txt rules of the site.
+     * @param jsoupConnection The connection used for the fetches.
+     * @return A CompletableFuture of the matching page URLs in sitemap order, never completed exceptionally.
+     */
+    public CompletableFuture<List<String>> discoverSitemapLinks(String siteBaseUrl, RobotsRules robotsRules,
+                                                                JsoupConnection jsoupConnection) {
+        String origin = originOf(siteBaseUrl);
+        if (!crawlerConfig.useSitemaps || origin == null) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        SitemapWalk walk = new SitemapWalk(siteBaseUrl, robotsRules, jsoupConnection);
+        if (robotsRules.getSitemaps().isEmpty()) {
+            walk.pendingSitemaps.add(origin + "/sitemap.xml");
+        } else {
+            walk.pendingSitemaps.addAll(robotsRules.getSitemaps());
+        }
+        return walk.next().exceptionally(ex -> null).thenApply(v -> new ArrayList<>(walk.links));
+    }
+
+    /**
+     * The sitemap files of one site still to be read and the links found so far.
+     */
+    private class SitemapWalk {
+        private final String siteBaseUrl;
+        private final RobotsRules robotsRules;
+        private final JsoupConnection jsoupConnection;
+        private final List<String> keywords = KeywordManager.getSimpleKeywords(KeywordManager.CRAWLING_KEYWORDS);
+        private final Deque<String> pendingSitemaps = new ArrayDeque<>();
+        private final Set<String> readSitemaps = new HashSet<>();
+        private final Set<String> links = new LinkedHashSet<>();
+
+        SitemapWalk(String siteBaseUrl, RobotsRules robotsRules, JsoupConnection jsoupConnection) {
+            this.siteBaseUrl = siteBaseUrl;
+            this.robotsRules = robotsRules;
+            this.jsoupConnection = jsoupConnection;
+        }
+
+        /**
+         * Reads the next sitemap, one at a time, until none is left or a limit is reached.
+         */
+        CompletableFuture<Void> next() {
+            String sitemapUrl = pendingSitemaps.poll();
+            if (sitemapUrl == null
+                    || readSitemaps.size() >= crawlerConfig.maxSitemapFetches
+                    || links.size() >= crawlerConfig.maxSitemapUrls) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (!readSitemaps.add(sitemapUrl)) {
+                return next();
+            }
+            return jsoupConnection.fetchResource(sitemapUrl).thenCompose(response -> {
+                if (response != null) {
+                    read(sitemapUrl, response);
+                }
+                return next();
+            });
+        }
+
+        private void read(String sitemapUrl, FetchResponse response) {
+            try {
+                SitemapReader.read(new ByteArrayInputStream(response.getBody()),
+                        pageUrl -> {
+                            if (links.size() < crawlerConfig.maxSitemapUrls
+                                    && HtmlProcessor.isCrawlableLink(pageUrl, siteBaseUrl, keywords)
+                                    && robotsRules.isAllowed(pageUrl)) {
+                                links.add(pageUrl);
+                            }
+                        },
+                        pendingSitemaps::add);
+            } catch (IOException e) {
+                System.out.println("Could not read sitemap " + sitemapUrl + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns scheme, host and port of the URL, or null if it has no host.
+     */
+    static String originOf(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return null;
+            }
+            String origin = uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT);
+            return uri.getPort() == -1 ? origin : origin + ":" + uri.getPort();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package v2.crawler.Discovery;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams the {@code <loc>} entries of a sitemap or sitemap index without building a DOM.
+ * Gzip compressed sitemaps ({@code sitemap.xml.gz}) are detected by their magic bytes.
+ */
+public class SitemapReader {
+
+    private static final XMLInputFactory xmlInputFactory = createFactory();
+
+    /**
+     * Reads a sitemap and hands every location to the matching consumer as it is parsed.
+     *
+     * @param in          The sitemap content.
+     * @param onPageUrl   Receives the page URLs of a {@code <urlset>}.
+     * @param onSitemap   Receives the child sitemap URLs of a {@code <sitemapindex>}.
+     * @throws IOException If the content is not a readable sitemap.
+     */
+    public static void read(InputStream in, Consumer<String> onPageUrl, Consumer<String> onSitemap) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = xmlInputFactory.createXMLStreamReader(decompressIfNeeded(in));
+            boolean insideSitemapEntry = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (name.equals("sitemap")) {
+                        insideSitemapEntry = true;
+                    } else if (name.equals("url")) {
+                        insideSitemapEntry = false;
+                    } else if (name.equals("loc")) {
+                        String location = reader.getElementText().trim();
+                        if (!location.isEmpty()) {
+                            (insideSitemapEntry ? onSitemap : onPageUrl).accept(location);
+                        }
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid sitemap: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+
+    private static InputStream decompressIfNeeded(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new GZIPInputStream(buffered);
+        }
+        return buffered;
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Sitemaps come from untrusted hosts, never resolve DTDs or external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+}
@@ -24,7 +24,23 @@ public class ErrorDetail {
                (statusCode != null ? ", Status Code: " + statusCode : "");
     }
 
+    public String getErrorSource() {
+        return errorSource;
+    }
+
     public String getErrorType() {
         return errorType;
     }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
 }
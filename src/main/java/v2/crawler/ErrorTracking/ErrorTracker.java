@@ -3,66 +3,130 @@ package v2.crawler.ErrorTracking;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Collects the errors of all fetch threads without locking.
+ * Every error is counted per source, type and host, the most recent errors are kept in a bounded ring buffer,
+ * and, once {@link #startErrorLog(String)} was called, every error is appended to the error log by a background
+ * writer. Memory use does not grow with the number of errors: the hosts are counted separately for at most
+ * {@value #MAX_HOSTS_PER_TYPE} hosts per source and type, errors of further hosts are counted under
+ * {@value #OTHER_HOSTS}.
+ */
 public class ErrorTracker {
-    private static ErrorTracker instance;
-    private List<ErrorDetail> errorList;
+    private static final ErrorTracker instance = new ErrorTracker();
+
+    private static final int RECENT_ERRORS_CAPACITY = 1024;
+    private static final int MAX_HOSTS_PER_TYPE = 1000;
+    private static final String OTHER_HOSTS = "other hosts";
+    private static final int LOG_QUEUE_CAPACITY = 10_000; // Errors waiting for the writer, further errors are not logged
+    private static final ErrorDetail STOP = new ErrorDetail(null, null, null, null, null); // Stops the writer thread
+
+    private final ConcurrentMap<String, LongAdder> countsByType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> countsBySourceTypeHost = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<ErrorDetail> recentErrors = new AtomicReferenceArray<>(RECENT_ERRORS_CAPACITY);
+    private final AtomicLong errorCount = new AtomicLong(); // Also the sequence of the ring buffer
+    private final LongAdder unloggedErrors = new LongAdder();
+    private volatile BlockingQueue<ErrorDetail> logQueue; // null while no error log is written
+    private Thread logWriter;
 
     private ErrorTracker() {
-        errorList = new ArrayList<>();
     }
 
-    public static synchronized ErrorTracker getInstance() {
-        if (instance == null) {
-            instance = new ErrorTracker();
-        }
+    public static ErrorTracker getInstance() {
         return instance;
     }
 
-        /**
-     * Generates a summary of the current errors.
+    public void addError(ErrorDetail error) {
+        String errorType = String.valueOf(error.getErrorType());
+        countsByType.computeIfAbsent(errorType, key -> new LongAdder()).increment();
+        countHost(countsBySourceTypeHost.computeIfAbsent(error.getErrorSource() + " " + errorType,
+                key -> new ConcurrentHashMap<>()), hostOf(error.getUrl()));
+        long sequence = errorCount.getAndIncrement();
+        recentErrors.set((int) (sequence % RECENT_ERRORS_CAPACITY), error);
+
+        BlockingQueue<ErrorDetail> queue = logQueue;
+        if (queue != null && !queue.offer(error)) {
+            unloggedErrors.increment();
+        }
+    }
+
+    /**
+     * Counts an error of a host. Once the cap is reached, errors of hosts without a counter go to the shared one,
+     * concurrent first errors of new hosts may exceed the cap by the number of fetch threads.
+     */
+    private static void countHost(ConcurrentMap<String, LongAdder> countsByHost, String host) {
+        LongAdder count = countsByHost.get(host);
+        if (count == null) {
+            String key = countsByHost.size() < MAX_HOSTS_PER_TYPE ? host : OTHER_HOSTS;
+            count = countsByHost.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Generates a summary of the errors, computed from the counters per error type.
      *
      * @return A string representation of the error summary.
      */
     public String generateErrorSummary() {
-        Map<String, Integer> errorCountByType = new HashMap<>();
         StringBuilder summary = new StringBuilder();
-
-        for (ErrorDetail error : errorList) {
-            String key = error.getErrorType();
-            errorCountByType.put(key, errorCountByType.getOrDefault(key, 0) + 1);
-        }
-
         summary.append("Error Summary:\n");
-        for (Map.Entry<String, Integer> entry : errorCountByType.entrySet()) {
-            summary.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        for (Map.Entry<String, LongAdder> entry : countsByType.entrySet()) {
+            summary.append(entry.getKey()).append(": ").append(entry.getValue().sum()).append("\n");
+        }
+        long unlogged = unloggedErrors.sum();
+        if (unlogged > 0) {
+            summary.append("Errors not written to the error log: ").append(unlogged).append("\n");
         }
-
         return summary.toString();
     }
 
     /**
-     * Provides a detailed overview of all tracked errors.
+     * Returns the number of errors per source, error type and host, keyed by "source type host".
+     * Hosts beyond the cap of a source and type are summed up under "source type other hosts".
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        countsBySourceTypeHost.forEach((sourceType, countsByHost) ->
+                countsByHost.forEach((host, count) -> counts.put(sourceType + " " + host, count.sum())));
+        return counts;
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Provides a detailed overview of the most recent errors.
      *
-     * @return A string representation of all errors.
+     * @return A string representation of the errors in the ring buffer.
      */
     public String getDetailedErrorOverview() {
         StringBuilder details = new StringBuilder();
         details.append("Detailed Error Overview:\n");
 
-        for (ErrorDetail error : errorList) {
+        for (ErrorDetail error : getErrorList()) {
             details.append(error.toString()).append("\n\n");
         }
 
         return details.toString();
     }
 
-        /**
-     * Writes the detailed error overview and summary to a file.
+    /**
+     * Writes the detailed overview of the most recent errors and the summary to a file.
      *
      * @param filePath The path of the file to write to.
      */
@@ -73,15 +137,102 @@ public class ErrorTracker {
             writer.write(generateErrorSummary());
         } catch (IOException e) {
             System.err.println("Error writing to file: " + e.getMessage());
-            // Handle exception or log error as needed
         }
     }
 
-    public void addError(ErrorDetail error) {
-        errorList.add(error);
+    /**
+     * Starts appending every error added from now on to the error log, on a background thread.
+     * The file is truncated first.
+     *
+     * @param filePath The path of the error log.
+     */
+    public synchronized void startErrorLog(String filePath) {
+        if (logQueue != null) {
+            return;
+        }
+        BufferedWriter writer;
+        try {
+            writer = new BufferedWriter(new FileWriter(filePath));
+        } catch (IOException e) {
+            System.err.println("Error opening error log: " + e.getMessage());
+            return;
+        }
+        BlockingQueue<ErrorDetail> queue = new LinkedBlockingQueue<>(LOG_QUEUE_CAPACITY);
+        logWriter = new Thread(() -> writeLog(queue, writer), "error-log");
+        logWriter.setDaemon(true);
+        logWriter.start();
+        logQueue = queue;
+    }
+
+    /**
+     * Writes the queued errors and the summary to the error log and stops the background writer.
+     */
+    public synchronized void closeErrorLog() {
+        BlockingQueue<ErrorDetail> queue = logQueue;
+        if (queue == null) {
+            return;
+        }
+        logQueue = null;
+        try {
+            queue.put(STOP);
+            logWriter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
+    private void writeLog(BlockingQueue<ErrorDetail> queue, BufferedWriter writer) {
+        List<ErrorDetail> batch = new ArrayList<>();
+        boolean stopped = false;
+        try (writer) {
+            while (!stopped) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (ErrorDetail error : batch) {
+                    if (error == STOP) {
+                        stopped = true;
+                    } else {
+                        writer.write(error.toString());
+                        writer.newLine();
+                    }
+                }
+                batch.clear();
+                writer.flush(); // Nothing is left waiting in the buffer while the queue is empty
+            }
+            writer.newLine();
+            writer.write(generateErrorSummary());
+        } catch (IOException e) {
+            System.err.println("Error writing to error log: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the most recent errors, oldest first.
+     */
     public List<ErrorDetail> getErrorList() {
-        return errorList;
+        long end = errorCount.get();
+        long start = Math.max(0, end - RECENT_ERRORS_CAPACITY);
+        List<ErrorDetail> errors = new ArrayList<>();
+        for (long sequence = start; sequence < end; sequence++) {
+            ErrorDetail error = recentErrors.get((int) (sequence % RECENT_ERRORS_CAPACITY));
+            if (error != null) {
+                errors.add(error);
+            }
+        }
+        return errors;
+    }
+
+    private static String hostOf(String url) {
+        if (url == null) {
+            return "";
+        }
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host == null ? "" : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
     }
 }
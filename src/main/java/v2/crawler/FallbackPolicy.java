@@ -0,0 +1,122 @@
+package v2.crawler;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLException;
+
+import org.jsoup.HttpStatusException;
+
+import v2.crawler.Transport.RejectedContentException;
+import v2.dataProcessing.PageExtract;
+
+/**
+ * Decides whether a page is rendered with Selenium, based on why the plain fetch failed or on what the
+ * fetched page looks like. A browser is only used where rendering is likely to change the result:
+ * <ul>
+ *     <li>after a failure a browser can get past, such as a 403 or 503 of a bot protection, or an unexpected error.
+ *     Unknown hosts, refused connections, timeouts, TLS errors, rejected content and other error statuses are
+ *     skipped, a browser would fail the same way.</li>
+ *     <li>after a successful fetch of a page whose content is built by JavaScript: a body without text and links,
+ *     a page whose text is all in {@code <noscript>}, or a near-empty single page application root.</li>
+ * </ul>
+ * Every decision is counted by route and reason.
+ */
+public class FallbackPolicy {
+
+    public static final String ROUTE_HTTP = "http";
+    public static final String ROUTE_RENDER = "render";
+    public static final String ROUTE_SKIP = "skip";
+
+    private static final int MIN_STATIC_TEXT_LENGTH = 150; // Non-whitespace text of a page that needs no rendering
+
+    private final ConcurrentMap<String, LongAdder> routeCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Decides whether a failed fetch is retried with Selenium.
+     *
+     * @param failure       The exception the fetch failed with, unwrapped.
+     * @param hostAvailable false if the host is known to be unreachable, the page is then never rendered.
+     * @return true if the page should be rendered.
+     */
+    public boolean shouldRenderAfterFailure(Throwable failure, boolean hostAvailable) {
+        if (!hostAvailable) {
+            return count(ROUTE_SKIP, "host unavailable");
+        }
+        if (failure instanceof HttpStatusException) {
+            int status = ((HttpStatusException) failure).getStatusCode();
+            // Bot protections answer 403 or 503 with a JavaScript challenge that a browser passes
+            return count(status == 403 || status == 503 ? ROUTE_RENDER : ROUTE_SKIP, "status " + status);
+        }
+        if (failure instanceof HostUnavailableException
+                || failure instanceof UnknownHostException
+                || failure instanceof ConnectException
+                || failure instanceof NoRouteToHostException
+                || failure instanceof SocketTimeoutException
+                || failure instanceof HttpTimeoutException
+                || failure instanceof SSLException
+                || failure instanceof RejectedContentException) {
+            return count(ROUTE_SKIP, failure.getClass().getSimpleName());
+        }
+        return count(ROUTE_RENDER, failure.getClass().getSimpleName());
+    }
+
+    /**
+     * Decides whether a successfully fetched page is rendered with Selenium because its content is built by JavaScript.
+     *
+     * @param pageExtract The page as fetched over HTTP.
+     * @return true if the page should be rendered.
+     */
+    public boolean shouldRenderPage(PageExtract pageExtract) {
+        return shouldRender(pageExtract.getVisibleTextLength(), pageExtract.getNoscriptTextLength(),
+                !pageExtract.getLinks().isEmpty(), pageExtract.hasSpaRoot());
+    }
+
+    private boolean shouldRender(int textLength, int noscriptTextLength, boolean hasLinks, boolean spaRoot) {
+        if (textLength == 0 && !hasLinks) {
+            return count(ROUTE_RENDER, "empty body");
+        }
+        if (textLength < MIN_STATIC_TEXT_LENGTH) {
+            if (noscriptTextLength > 0 && noscriptTextLength >= textLength) {
+                return count(ROUTE_RENDER, "noscript only");
+            }
+            if (spaRoot && !hasLinks) {
+                return count(ROUTE_RENDER, "spa root");
+            }
+        }
+        return count(ROUTE_HTTP, "static page");
+    }
+
+    /**
+     * Returns how often each route was taken, keyed by "route (reason)".
+     */
+    public Map<String, Long> getRouteCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        routeCounts.forEach((key, count) -> counts.put(key, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Generates a summary of the routes taken.
+     *
+     * @return A string representation of the route counts.
+     */
+    public String generateRouteSummary() {
+        StringBuilder summary = new StringBuilder("Fetch Route Summary:\n");
+        getRouteCounts().forEach((key, count) -> summary.append(key).append(": ").append(count).append("\n"));
+        return summary.toString();
+    }
+
+    private boolean count(String route, String reason) {
+        routeCounts.computeIfAbsent(route + " (" + reason + ")", key -> new LongAdder()).increment();
+        return ROUTE_RENDER.equals(route);
+    }
+}
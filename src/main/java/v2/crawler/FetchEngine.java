@@ -0,0 +1,114 @@
+package v2.crawler;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Owns the executors the crawler runs on.
+ * Blocking fetches run on the fetch executor, CPU-bound parsing runs on a separate pool sized to the cores.
+ * Renders wait for a free browser on a render pool sized to the WebDriver pool, so that the wait holds neither a
+ * fetch thread nor a scheduler slot.
+ * The fetch executor is selected by {@code CrawlerConfig.fetchMode}:
+ * <ul>
+ *     <li>{@code "pooled"}: a fixed pool of {@code fetchThreads} platform threads.</li>
+ *     <li>{@code "virtual"}: one virtual thread per fetch, limited by the scheduler's semaphore to
+ *     {@code maxConcurrentVirtualFetches}. Virtual threads need Java 21, on older runtimes a warning is logged
+ *     and the engine runs as in pooled mode, a thousand platform threads would cost what virtual threads save.</li>
+ * </ul>
+ */
+public class FetchEngine {
+
+    public static final String POOLED = "pooled";
+    public static final String VIRTUAL = "virtual";
+
+    private final ExecutorService fetchExecutor;
+    private final ExecutorService parseExecutor;
+    private final ExecutorService renderExecutor;
+    private final int maxConcurrentFetches;
+
+    public FetchEngine(CrawlerConfig crawlerConfig) {
+        ExecutorService virtualThreadExecutor = VIRTUAL.equalsIgnoreCase(crawlerConfig.fetchMode)
+                ? createVirtualThreadExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            this.fetchExecutor = virtualThreadExecutor;
+            this.maxConcurrentFetches = crawlerConfig.maxConcurrentVirtualFetches;
+        } else {
+            this.fetchExecutor = Executors.newFixedThreadPool(crawlerConfig.fetchThreads, namedThreads("fetch"));
+            this.maxConcurrentFetches = Math.min(crawlerConfig.maxConcurrentFetches, crawlerConfig.fetchThreads);
+        }
+        this.parseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), namedThreads("parse"));
+        this.renderExecutor = Executors.newFixedThreadPool(Math.max(1, crawlerConfig.webDriverPoolSize), namedThreads("render"));
+    }
+
+    public ExecutorService getFetchExecutor() {
+        return fetchExecutor;
+    }
+
+    public ExecutorService getParseExecutor() {
+        return parseExecutor;
+    }
+
+    public ExecutorService getRenderExecutor() {
+        return renderExecutor;
+    }
+
+    /**
+     * The number of fetches allowed in flight at once, used as the scheduler's global cap.
+     */
+    public int getMaxConcurrentFetches() {
+        return maxConcurrentFetches;
+    }
+
+    /**
+     * Shuts all executors down and waits for running tasks to finish.
+     */
+    public void shutdown() {
+        shutdownAndAwait(fetchExecutor);
+        shutdownAndAwait(parseExecutor);
+        shutdownAndAwait(renderExecutor);
+    }
+
+    private static void shutdownAndAwait(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} at runtime, so the project still compiles
+     * for Java 17 but uses virtual threads when it runs on Java 21 or newer.
+     *
+     * @return The executor, or null if virtual threads are not available.
+     */
+    private static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Warning: virtual threads are not available on Java " + Runtime.version().feature()
+                    + ", fetching with the pooled engine instead");
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
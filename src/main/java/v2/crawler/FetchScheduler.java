@@ -0,0 +1,218 @@
+package v2.crawler;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Schedules fetches over a frontier keyed by host.
+ * Every fetch goes through one global in-flight cap, a per-host in-flight cap and a minimum delay
+ * between two fetch starts on the same host. Hosts with pending work are served round-robin, so a
+ * few big sites cannot occupy all fetch threads while small sites wait. The frontier of a host is dropped
+ * once it has no work left and its delay has passed.
+ */
+public class FetchScheduler {
+
+    private final ExecutorService fetchExecutor;
+    private final ScheduledExecutorService delayTimer;
+    private final Semaphore globalPermits;
+    private final int maxPerHost;
+    private final long minDelayNanos;
+
+    private final Map<String, HostFrontier> frontiers = new HashMap<>();
+    private final Deque<HostFrontier> runnableHosts = new ArrayDeque<>();
+
+    /**
+     * Creates a scheduler that executes fetches on the fetch executor of the given engine.
+     * The global cap is a semaphore sized to the engine's concurrency limit.
+     *
+     * @param fetchEngine   The engine providing the fetch executor and the global concurrency limit.
+     * @param crawlerConfig The crawler configuration holding the per-host limits and delays.
+     */
+    public FetchScheduler(FetchEngine fetchEngine, CrawlerConfig crawlerConfig) {
+        this.fetchExecutor = fetchEngine.getFetchExecutor();
+        this.delayTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fetch-scheduler-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.globalPermits = new Semaphore(Math.max(1, fetchEngine.getMaxConcurrentFetches()));
+        this.maxPerHost = Math.max(1, crawlerConfig.maxConcurrentFetchesPerHost);
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, crawlerConfig.minDelayPerHostMillis));
+    }
+
+    /**
+     * Queues a fetch task in the frontier of the URL's host.
+     *
+     * @param url  The URL the task fetches, used to determine the host.
+     * @param task The blocking fetch to run once the host and the global cap allow it.
+     * @return A CompletableFuture completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> submit(String url, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        PendingFetch fetch = new PendingFetch() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            }
+
+            @Override
+            void fail(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+
+        synchronized (this) {
+            HostFrontier frontier = frontiers.computeIfAbsent(hostOf(url), HostFrontier::new);
+            frontier.pending.add(fetch);
+            markRunnable(frontier);
+            dispatch();
+        }
+        return result;
+    }
+
+    /**
+     * Stops the delay timer. Queued fetches that are still waiting for their host delay are dropped.
+     */
+    public void shutdown() {
+        delayTimer.shutdownNow();
+    }
+
+    /**
+     * Starts as many queued fetches as the global cap, the per-host caps and the host delays allow.
+     * Must be called while holding the scheduler lock.
+     */
+    private void dispatch() {
+        while (!runnableHosts.isEmpty()) {
+            HostFrontier frontier = runnableHosts.peek();
+            long waitNanos = frontier.nextStartNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                // The host is still cooling down, park it on the timer and serve the next host
+                runnableHosts.poll();
+                delayTimer.schedule(() -> wakeUp(frontier), waitNanos, TimeUnit.NANOSECONDS);
+                continue;
+            }
+            if (!globalPermits.tryAcquire()) {
+                return; // Resumed when a running fetch completes
+            }
+            runnableHosts.poll();
+            frontier.queued = false;
+
+            PendingFetch fetch = frontier.pending.poll();
+            frontier.active++;
+            frontier.nextStartNanos = System.nanoTime() + minDelayNanos;
+            markRunnable(frontier); // Back to the end of the round-robin if it has more work
+
+            try {
+                fetchExecutor.execute(() -> {
+                    try {
+                        fetch.run();
+                    } finally {
+                        onFetchCompleted(frontier);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The engine is shut down, give the slot and the permit back and fail the fetch
+                frontier.active--;
+                globalPermits.release();
+                fetch.fail(e);
+                retireIfIdle(frontier);
+            }
+        }
+    }
+
+    private synchronized void wakeUp(HostFrontier frontier) {
+        frontier.queued = false;
+        markRunnable(frontier);
+        dispatch();
+    }
+
+    private synchronized void onFetchCompleted(HostFrontier frontier) {
+        frontier.active--;
+        globalPermits.release();
+        markRunnable(frontier);
+        retireIfIdle(frontier);
+        dispatch();
+    }
+
+    /**
+     * Drops the frontier of a host without pending or running fetches. While its delay has not passed it is kept,
+     * so a fetch submitted right after still waits for it, and checked again once the delay is over.
+     * Must be called while holding the scheduler lock.
+     */
+    private void retireIfIdle(HostFrontier frontier) {
+        if (!frontier.pending.isEmpty() || frontier.active > 0) {
+            return;
+        }
+        long waitNanos = frontier.nextStartNanos - System.nanoTime();
+        if (waitNanos <= 0 || delayTimer.isShutdown()) {
+            frontiers.remove(frontier.host, frontier);
+        } else {
+            delayTimer.schedule(() -> retire(frontier), waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void retire(HostFrontier frontier) {
+        retireIfIdle(frontier);
+    }
+
+    private void markRunnable(HostFrontier frontier) {
+        if (!frontier.queued && !frontier.pending.isEmpty() && frontier.active < maxPerHost) {
+            frontier.queued = true;
+            runnableHosts.add(frontier);
+        }
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    /**
+     * A queued fetch, failed instead of run if the fetch executor rejects it.
+     */
+    private abstract static class PendingFetch implements Runnable {
+        abstract void fail(Throwable t);
+    }
+
+    /**
+     * Pending fetches and politeness state of a single host.
+     */
+    private static class HostFrontier {
+        private final String host;
+        private final Deque<PendingFetch> pending = new ArrayDeque<>();
+        private int active;
+        private long nextStartNanos = System.nanoTime();
+        private boolean queued; // In runnableHosts or waiting on the delay timer
+
+        HostFrontier(String host) {
+            this.host = host;
+        }
+
+        @Override
+        public String toString() {
+            return host + " (pending: " + pending.size() + ", active: " + active + ")";
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package v2.crawler;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Tracks whether hosts are reachable, so that a dead host costs one failure instead of one timeout per sub-page,
+ * and how fast they answer, so that every host gets a timeout fitting its observed latency.
+ * <ul>
+ *     <li>Names that did not resolve (NXDOMAIN) are cached for {@code dnsNegativeCacheTtlMillis} and fail at once.
+ *     Resolved addresses are left to the JDK's InetAddress cache, which the transports resolve through as well.</li>
+ *     <li>A circuit breaker per host opens after {@code circuitBreakerFailureThreshold} consecutive connection
+ *     failures: refused, unroutable or timed out connects. While it is open every fetch to the host fails at once.
+ *     After {@code circuitBreakerOpenMillis} a single probe is let through, which reopens the breaker on a
+ *     connection failure and closes it on any other outcome, an HTTP error, TLS failure or read timeout included,
+ *     since the host answered.</li>
+ * </ul>
+ */
+public class HostHealth {
+
+    private final CrawlerConfig crawlerConfig;
+    private final ConcurrentMap<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public HostHealth(CrawlerConfig crawlerConfig) {
+        this.crawlerConfig = crawlerConfig;
+    }
+
+    /**
+     * Checks that the host of the URL may be fetched and resolves its name if it is not cached.
+     * Called right before a fetch is executed.
+     *
+     * @param url The URL about to be fetched.
+     * @return True if the fetch is the probe of a half-open circuit breaker, which has to be
+     * {@link #releaseProbe(String) released} once the fetch is over, whatever its outcome.
+     * @throws UnknownHostException     If the host name does not resolve, now or in the negative cache.
+     * @throws HostUnavailableException If the circuit breaker of the host is open.
+     */
+    public boolean checkAvailable(String url) throws UnknownHostException, HostUnavailableException {
+        String host = FetchScheduler.hostOf(url);
+        if (host.isEmpty()) {
+            return false; // Left to the transport to reject
+        }
+        HostState state = hosts.computeIfAbsent(host, HostState::new);
+        boolean probe = state.acquireBreaker();
+        state.resolve();
+        return probe;
+    }
+
+    /**
+     * Ends the probe of the host of the URL. A probe whose outcome was recorded is already over, this covers a
+     * probe that ended in an unexpected exception, which would otherwise block the host for the rest of the run.
+     */
+    public void releaseProbe(String url) {
+        HostState state = hosts.get(FetchScheduler.hostOf(url));
+        if (state != null) {
+            state.releaseProbe();
+        }
+    }
+
+    /**
+     * Returns false if the host of the URL is known to be unreachable, without resolving or probing it.
+     */
+    public boolean isAvailable(String url) {
+        HostState state = hosts.get(FetchScheduler.hostOf(url));
+        return state == null || state.isAvailable();
+    }
+
+    public void recordSuccess(String url) {
+        HostState state = hosts.get(FetchScheduler.hostOf(url));
+        if (state != null) {
+            state.recordSuccess();
+        }
+    }
+
+    /**
+     * Records a failed fetch. Only failures to reach the host count towards its circuit breaker. Any other
+     * failure, e.g. an HTTP error status or a failed TLS handshake, proves the host reachable and counts as a success.
+     */
+    public void recordFailure(String url, Throwable failure) {
+        HostState state = hosts.get(FetchScheduler.hostOf(url));
+        if (state == null) {
+            return;
+        }
+        if (isConnectionFailure(failure)) {
+            state.recordFailure();
+        } else {
+            state.recordSuccess();
+        }
+    }
+
+    /**
+     * Records how long a fetch from the host of the URL took. A fetch that timed out is recorded with its timeout,
+     * the lower bound of its latency, so that a slow host's timeout grows instead of cutting it off again.
+     */
+    public void recordLatency(String url, long millis) {
+        hosts.computeIfAbsent(FetchScheduler.hostOf(url), HostState::new).latency.record(millis);
+    }
+
+    /**
+     * Returns the timeout for a fetch from the host of the URL.
+     * Hosts with too few recorded fetches get {@code initialFetchTimeoutMillis}.
+     */
+    public int timeoutFor(String url) {
+        HostState state = hosts.get(FetchScheduler.hostOf(url));
+        if (state == null || state.latency.getCount() < crawlerConfig.minLatencySamples) {
+            return crawlerConfig.initialFetchTimeoutMillis;
+        }
+        long timeout = (long) (state.latency.getPercentile(99) * crawlerConfig.fetchTimeoutP99Factor);
+        return (int) Math.max(crawlerConfig.minFetchTimeoutMillis, Math.min(crawlerConfig.maxFetchTimeoutMillis, timeout));
+    }
+
+    /**
+     * Returns true if the failure means the host could not be connected to. Read and response timeouts are not
+     * connection failures, the host accepted the connection and is only slow, which its timeout accounts for.
+     */
+    static boolean isConnectionFailure(Throwable failure) {
+        return failure instanceof ConnectException
+                || failure instanceof NoRouteToHostException
+                || failure instanceof UnknownHostException
+                || failure instanceof HttpConnectTimeoutException
+                || (failure instanceof SocketTimeoutException && failure.getMessage() != null
+                        && failure.getMessage().toLowerCase().contains("connect timed out"));
+    }
+
+    /**
+     * Negative DNS cache entry, circuit breaker and latencies of a single host.
+     */
+    private class HostState {
+        private final String host;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private UnknownHostException unresolved;
+        private long unresolvedUntil;
+
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probing;
+
+        HostState(String host) {
+            this.host = host;
+        }
+
+        /**
+         * @return True if the breaker is half-open and the caller's fetch is its probe.
+         */
+        synchronized boolean acquireBreaker() throws HostUnavailableException {
+            if (consecutiveFailures < crawlerConfig.circuitBreakerFailureThreshold) {
+                return false;
+            }
+            if (probing || System.currentTimeMillis() < openUntil) {
+                throw new HostUnavailableException(host, "Circuit breaker open for " + host
+                        + " after " + consecutiveFailures + " consecutive connection failures");
+            }
+            probing = true; // Half-open: this fetch is the probe
+            return true;
+        }
+
+        synchronized void releaseProbe() {
+            probing = false;
+        }
+
+        synchronized boolean isAvailable() {
+            long now = System.currentTimeMillis();
+            if (unresolved != null && now < unresolvedUntil) {
+                return false;
+            }
+            return consecutiveFailures < crawlerConfig.circuitBreakerFailureThreshold || (!probing && now >= openUntil);
+        }
+
+        /**
+         * Resolves the host name unless a negative cache entry is still valid. A name that resolves is served from
+         * the JDK's cache by this lookup and by the transport's own.
+         */
+        void resolve() throws UnknownHostException {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                if (unresolved != null && now < unresolvedUntil) {
+                    throw unresolved;
+                }
+            }
+            try {
+                InetAddress.getByName(host);
+                synchronized (this) {
+                    unresolved = null;
+                }
+            } catch (UnknownHostException e) {
+                synchronized (this) {
+                    unresolved = e;
+                    unresolvedUntil = now + crawlerConfig.dnsNegativeCacheTtlMillis;
+                    probing = false;
+                }
+                throw e;
+            }
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            probing = false;
+        }
+
+        synchronized void recordFailure() {
+            consecutiveFailures++;
+            probing = false;
+            if (consecutiveFailures >= crawlerConfig.circuitBreakerFailureThreshold) {
+                openUntil = System.currentTimeMillis() + crawlerConfig.circuitBreakerOpenMillis;
+                if (consecutiveFailures == crawlerConfig.circuitBreakerFailureThreshold) {
+                    System.out.println("Circuit breaker opened for " + host + " for "
+                            + TimeUnit.MILLISECONDS.toSeconds(crawlerConfig.circuitBreakerOpenMillis) + "s");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package v2.crawler;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of fetching when a host is known to be unreachable, either because its name did not resolve
+ * recently or because its circuit breaker is open.
+ */
+public class HostUnavailableException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String host;
+
+    public HostUnavailableException(String host, String message) {
+        super(message);
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,454 @@
+package v2.crawler.Journal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import v2.Objects.CrawledPage;
+import v2.Storage.CrawlStore;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Append-only journal of a crawl run, so that a run interrupted by a crash or a kill resumes where it stopped.
+ * It records the state of every business partner (pending, in flight, done or failed with a reason) and of every
+ * page of the sites being crawled. The journal holds the URL, state and content hash of a page only, the content of
+ * done pages is appended to the {@link CrawlStore} under a key of its site and read back from there on resume.
+ * <p>
+ * Records are queued by the crawler threads and written by a single writer thread, which syncs the file to disk
+ * once {@code journalSyncBatchSize} records are written or {@code journalSyncIntervalMillis} have passed. The pages
+ * of a batch are written to the crawl store and synced before the journal refers to them. A crash loses at most the
+ * records of the last interval, their pages are simply fetched again.
+ * <p>
+ * On open, a journal whose run did not complete is loaded and compacted: only the partner states and the pages of
+ * sites that are not done yet are kept, the page records of done sites are dropped while the file is read. A journal
+ * of a completed run is moved aside and a new run is started.
+ */
+public class CrawlJournal {
+
+    public static final String PENDING = "PENDING";
+    public static final String IN_FLIGHT = "IN_FLIGHT";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    private static final String RUN_STARTED = "STARTED";
+    private static final String RUN_COMPLETED = "COMPLETED";
+    private static final JournalRecord CLOSE = new JournalRecord(); // Stops the writer thread
+    private static final String STORE_KEY_PREFIX = "crawl-journal:"; // Crawl store key of the done pages of a site
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path path;
+    private final long syncIntervalMillis;
+    private final int syncBatchSize;
+    private final CrawlStore crawlStore; // Holds the content of done pages, null if pages are not resumed
+    private final ConcurrentMap<String, JournalRecord> partners = new ConcurrentHashMap<>(); // Latest record per partner
+    private final Map<String, Integer> openPartnersBySite = new HashMap<>(); // Partners not done, per journaled site
+    private final ConcurrentMap<String, ConcurrentMap<String, JournalRecord>> pagesBySite = new ConcurrentHashMap<>();
+    private final BlockingQueue<JournalRecord> pending = new LinkedBlockingQueue<>();
+    private boolean resumed;
+    private FileChannel channel;
+    private Thread writerThread;
+    private volatile boolean writeFailed;
+
+    private CrawlJournal(Path path, long syncIntervalMillis, int syncBatchSize, CrawlStore crawlStore) {
+        this.path = path;
+        this.syncIntervalMillis = Math.max(1, syncIntervalMillis);
+        this.syncBatchSize = Math.max(1, syncBatchSize);
+        this.crawlStore = crawlStore;
+    }
+
+    /**
+     * Opens the journal configured by {@code crawlJournalPath}, resuming its run if it did not complete.
+     *
+     * @param crawlerConfig The configuration holding the journal path and the sync settings.
+     * @param crawlStore    The store the content of done pages is kept in.
+     * @return The open journal, its writer thread is running.
+     * @throws IOException If the journal cannot be read or created.
+     */
+    public static CrawlJournal open(CrawlerConfig crawlerConfig, CrawlStore crawlStore) throws IOException {
+        return open(crawlerConfig.crawlJournalPath, crawlerConfig.journalSyncIntervalMillis,
+                crawlerConfig.journalSyncBatchSize, crawlStore);
+    }
+
+    /**
+     * Opens a journal, resuming its run if it did not complete.
+     *
+     * @param path               The journal file, created with its directories if missing.
+     * @param syncIntervalMillis The longest time a written record waits for the file to be synced.
+     * @param syncBatchSize      The number of written records after which the file is synced early.
+     * @param crawlStore         The store the content of done pages is kept in, or null to resume partners only.
+     * @return The open journal, its writer thread is running.
+     * @throws IOException If the journal cannot be read or created.
+     */
+    public static CrawlJournal open(String path, long syncIntervalMillis, int syncBatchSize, CrawlStore crawlStore)
+            throws IOException {
+        CrawlJournal journal = new CrawlJournal(Paths.get(path), syncIntervalMillis, syncBatchSize, crawlStore);
+        journal.load();
+        journal.start();
+        return journal;
+    }
+
+    private void load() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        boolean completed = false;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JournalRecord record;
+                try {
+                    record = objectMapper.readValue(line, JournalRecord.class);
+                } catch (IOException e) {
+                    continue; // A record torn by the crash, it was never synced
+                }
+                if (JournalRecord.TYPE_RUN.equals(record.type)) {
+                    completed = RUN_COMPLETED.equals(record.state);
+                } else if (JournalRecord.TYPE_PARTNER.equals(record.type)) {
+                    putPartner(record);
+                    if (DONE.equals(record.state) && isSiteDone(record.siteKey)) {
+                        pagesBySite.remove(record.siteKey); // Not needed any more, keeps the heap small on resume
+                    }
+                } else if (JournalRecord.TYPE_PAGE.equals(record.type) && !isSiteDone(record.siteKey)) {
+                    pagesBySite.computeIfAbsent(record.siteKey, key -> new ConcurrentHashMap<>()).put(record.url, record);
+                }
+            }
+        }
+
+        if (completed) {
+            Files.move(path, path.resolveSibling(path.getFileName() + ".previous"), StandardCopyOption.REPLACE_EXISTING);
+            partners.clear();
+            openPartnersBySite.clear();
+            pagesBySite.clear();
+            removeStoredSites(Collections.emptySet());
+            return;
+        }
+        resumed = !partners.isEmpty();
+        compact();
+    }
+
+    /**
+     * Keeps the latest record of a partner and the count of its site's partners that are not done.
+     */
+    private synchronized void putPartner(JournalRecord record) {
+        JournalRecord previous = partners.put(record.partnerKey, record);
+        if (previous != null && !DONE.equals(previous.state)) {
+            openPartnersBySite.merge(previous.siteKey, -1, Integer::sum);
+        }
+        openPartnersBySite.merge(record.siteKey, DONE.equals(record.state) ? 0 : 1, Integer::sum);
+    }
+
+    /**
+     * Returns true if partners of the site are journaled and all of them are done.
+     */
+    private synchronized boolean isSiteDone(String siteKey) {
+        Integer openPartners = openPartnersBySite.get(siteKey);
+        return openPartners != null && openPartners == 0;
+    }
+
+    /**
+     * Rewrites the journal with the latest partner states and the pages of the sites that still have work left.
+     */
+    private void compact() throws IOException {
+        Set<String> openSites = new HashSet<>();
+        for (JournalRecord partner : partners.values()) {
+            if (!DONE.equals(partner.state)) {
+                openSites.add(partner.siteKey);
+            }
+        }
+        pagesBySite.keySet().retainAll(openSites);
+        removeStoredSites(openSites);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (JournalRecord partner : partners.values()) {
+                writer.write(objectMapper.writeValueAsString(partner));
+                writer.write('\n');
+            }
+            for (Map<String, JournalRecord> pages : pagesBySite.values()) {
+                for (JournalRecord page : pages.values()) {
+                    writer.write(objectMapper.writeValueAsString(page));
+                    writer.write('\n');
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes the stored pages of all sites except the given ones from the crawl store.
+     */
+    private void removeStoredSites(Set<String> keptSites) throws IOException {
+        if (crawlStore == null) {
+            return;
+        }
+        for (String key : new ArrayList<>(crawlStore.getPartnerKeys())) {
+            if (key.startsWith(STORE_KEY_PREFIX) && !keptSites.contains(key.substring(STORE_KEY_PREFIX.length()))) {
+                crawlStore.removePartner(key);
+            }
+        }
+    }
+
+    private void start() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        pending.add(JournalRecord.run(RUN_STARTED));
+        writerThread = new Thread(this::writeLoop, "crawl-journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Writes queued records and syncs the file in batches until the journal is closed.
+     */
+    private void writeLoop() {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        List<JournalRecord> batch = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        int unsynced = 0;
+        boolean closing = false;
+        while (!closing) {
+            try {
+                JournalRecord first = pending.poll(syncIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    pending.drainTo(batch, syncBatchSize);
+                }
+            } catch (InterruptedException e) {
+                closing = true;
+            }
+            try {
+                if (!writeFailed) {
+                    storePages(batch);
+                }
+                for (JournalRecord record : batch) {
+                    if (record == CLOSE) {
+                        closing = true;
+                    } else if (JournalRecord.TYPE_SITE_RELEASED.equals(record.type)) {
+                        continue;
+                    } else if (!writeFailed) {
+                        writer.write(objectMapper.writeValueAsString(record));
+                        writer.write('\n');
+                        unsynced++;
+                    }
+                }
+                long sinceSync = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSync);
+                if (unsynced > 0 && (closing || unsynced >= syncBatchSize || sinceSync >= syncIntervalMillis)) {
+                    writer.flush();
+                    channel.force(false);
+                    unsynced = 0;
+                    lastSync = System.nanoTime();
+                }
+            } catch (IOException e) {
+                if (!writeFailed) {
+                    System.err.println("Crawl journal write failed, the run can no longer be resumed: " + e.getMessage());
+                }
+                writeFailed = true;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Appends the done pages of a batch to the crawl store, one call and one sync per site, and removes the pages
+     * of released sites. A page that cannot be stored is journaled without its store reference and fetched again
+     * on resume.
+     */
+    private void storePages(List<JournalRecord> batch) throws IOException {
+        if (crawlStore == null) {
+            return;
+        }
+        Map<String, List<JournalRecord>> doneBySite = new LinkedHashMap<>();
+        for (JournalRecord record : batch) {
+            if (record.page != null) {
+                doneBySite.computeIfAbsent(record.siteKey, key -> new ArrayList<>()).add(record);
+            }
+        }
+        for (Map.Entry<String, List<JournalRecord>> site : doneBySite.entrySet()) {
+            List<CrawledPage> pages = new ArrayList<>();
+            for (JournalRecord record : site.getValue()) {
+                pages.add(record.page);
+                record.page = null;
+            }
+            try {
+                crawlStore.appendPages(STORE_KEY_PREFIX + site.getKey(), pages);
+            } catch (IOException e) {
+                System.err.println("Could not store the journaled pages of " + site.getKey() + ": " + e.getMessage());
+                for (JournalRecord record : site.getValue()) {
+                    record.pageUrl = null;
+                }
+            }
+        }
+        for (JournalRecord record : batch) {
+            if (JournalRecord.TYPE_SITE_RELEASED.equals(record.type)) {
+                crawlStore.removePartner(STORE_KEY_PREFIX + record.siteKey);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the journal holds the state of an interrupted run.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Returns the state of a partner in the journaled run, or null if the partner was not journaled.
+     */
+    public String getPartnerState(String partnerKey) {
+        JournalRecord record = partners.get(partnerKey);
+        return record == null ? null : record.state;
+    }
+
+    /**
+     * Records the state of a partner.
+     *
+     * @param partnerKey The key of the business partner.
+     * @param siteKey    The site the partner is crawled with.
+     * @param state      {@link #PENDING}, {@link #IN_FLIGHT}, {@link #DONE} or {@link #FAILED}.
+     * @param reason     Why the partner failed, null otherwise.
+     */
+    public void recordPartner(String partnerKey, String siteKey, String state, String reason) {
+        JournalRecord record = JournalRecord.partner(partnerKey, siteKey, state, reason);
+        putPartner(record);
+        pending.add(record);
+    }
+
+    /**
+     * Returns the journal of a site, holding the pages done or failed in the interrupted run.
+     */
+    public SiteJournal site(String siteKey) {
+        return new SiteJournal(this, siteKey);
+    }
+
+    /**
+     * Marks the run as completed, the next open starts a new run.
+     */
+    public void completeRun() {
+        pending.add(JournalRecord.run(RUN_COMPLETED));
+    }
+
+    /**
+     * Writes and syncs the queued records and stops the writer thread.
+     */
+    public void close() {
+        pending.add(CLOSE);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing crawl journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The pages of one site in the journal. Pages done in the interrupted run are returned instead of being fetched
+     * again. Pages that failed are fetched again, their failure may have been transient, e.g. a timeout or the
+     * crash itself, and a permanent one only costs a single request. Pages recorded in this run are only written,
+     * not kept.
+     */
+    public static class SiteJournal {
+
+        /**
+         * A site journal that resumes nothing and records nothing, for crawls without a journal.
+         */
+        public static final SiteJournal NONE = new SiteJournal(null, null);
+
+        private final CrawlJournal journal;
+        private final String siteKey;
+
+        private SiteJournal(CrawlJournal journal, String siteKey) {
+            this.journal = journal;
+            this.siteKey = siteKey;
+        }
+
+        private Map<String, JournalRecord> resumedPages() {
+            if (journal == null) {
+                return Collections.emptyMap();
+            }
+            return journal.pagesBySite.getOrDefault(siteKey, new ConcurrentHashMap<>());
+        }
+
+        /**
+         * Returns the page done for the URL in the interrupted run, read from the crawl store, or null.
+         */
+        public CrawledPage getCompletedPage(String url) {
+            JournalRecord record = resumedPages().get(url);
+            if (record == null || !DONE.equals(record.state) || record.pageUrl == null || journal.crawlStore == null) {
+                return null;
+            }
+            try {
+                CrawledPage page = journal.crawlStore.getPage(STORE_KEY_PREFIX + siteKey, record.pageUrl);
+                return page != null && page.getContentHash().equals(record.contentHash) ? page : null;
+            } catch (IOException e) {
+                return null; // Fetched again
+            }
+        }
+
+        /**
+         * Records a fetched page.
+         *
+         * @param url  The URL the page was requested with, before redirects.
+         * @param page The fetched page.
+         */
+        public void pageDone(String url, CrawledPage page) {
+            if (journal != null) {
+                journal.pending.add(JournalRecord.page(siteKey, url, DONE, null, page));
+            }
+        }
+
+        /**
+         * Records a page that could not be fetched, with the reason for reading the journal by hand.
+         */
+        public void pageFailed(String url, String reason) {
+            if (journal != null) {
+                journal.pending.add(JournalRecord.page(siteKey, url, FAILED, reason, null));
+            }
+        }
+
+        /**
+         * Drops the pages of the site once its partners are stored, also from the crawl store.
+         */
+        public void release() {
+            if (journal != null) {
+                journal.pagesBySite.remove(siteKey);
+                journal.pending.add(JournalRecord.siteReleased(siteKey));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package v2.crawler.Journal;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import v2.Objects.CrawledPage;
+
+/**
+ * A line of the {@link CrawlJournal}: the start or completion of a run, the state of a business partner
+ * or the state of a page of a site.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalRecord {
+    public static final String TYPE_RUN = "run";
+    public static final String TYPE_PARTNER = "partner";
+    public static final String TYPE_PAGE = "page";
+    static final String TYPE_SITE_RELEASED = "siteReleased"; // Queued only, never written
+
+    public String type;
+    public String partnerKey; // Partner records only
+    public String siteKey; // Site of the partner or the page
+    public String url; // Page records only, the URL the page was requested with
+    public String state;
+    public String reason; // Why a partner or page failed
+    public long at; // Epoch millis the record was written
+    public String pageUrl; // Done pages only, the URL after redirects the page is stored under in the crawl store
+    public String contentHash; // Done pages only
+    @JsonIgnore
+    CrawledPage page; // Done pages only, handed to the crawl store by the writer thread
+
+    static JournalRecord run(String state) {
+        JournalRecord record = new JournalRecord();
+        record.type = TYPE_RUN;
+        record.state = state;
+        record.at = System.currentTimeMillis();
+        return record;
+    }
+
+    static JournalRecord partner(String partnerKey, String siteKey, String state, String reason) {
+        JournalRecord record = new JournalRecord();
+        record.type = TYPE_PARTNER;
+        record.partnerKey = partnerKey;
+        record.siteKey = siteKey;
+        record.state = state;
+        record.reason = reason;
+        record.at = System.currentTimeMillis();
+        return record;
+    }
+
+    static JournalRecord page(String siteKey, String url, String state, String reason, CrawledPage page) {
+        JournalRecord record = new JournalRecord();
+        record.type = TYPE_PAGE;
+        record.siteKey = siteKey;
+        record.url = url;
+        record.state = state;
+        record.reason = reason;
+        record.page = page;
+        if (page != null) {
+            record.pageUrl = page.getUrl();
+            record.contentHash = page.getContentHash();
+        }
+        record.at = System.currentTimeMillis();
+        return record;
+    }
+
+    static JournalRecord siteReleased(String siteKey) {
+        JournalRecord record = new JournalRecord();
+        record.type = TYPE_SITE_RELEASED;
+        record.siteKey = siteKey;
+        return record;
+    }
+}
@@ -1,65 +1,476 @@
 package v2.crawler;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
-import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.parser.Parser;
 
+import v2.Objects.CrawledPage;
+import v2.Profiling.FetchEvent;
+import v2.Profiling.ParseEvent;
 import v2.crawler.ErrorTracking.ErrorDetail;
 import v2.crawler.ErrorTracking.ErrorTracker;
 import v2.crawler.Selenium.SeleniumConnection;
+import v2.crawler.Selenium.WebDriverPool;
+import v2.crawler.Transport.FetchRequest;
+import v2.crawler.Transport.FetchResponse;
+import v2.crawler.Transport.PageTransport;
+import v2.dataProcessing.PageExtract;
+import v2.dataProcessing.StreamingHtmlExtractor;
 
 /**
- * Provides functionalities to fetch HTML content from a URL using Jsoup with integrated error tracking.
+ * Provides functionalities to fetch HTML content from a URL and parse it with Jsoup, with integrated error tracking.
+ * The HTTP exchange itself is done by a pluggable {@link PageTransport}.
  */
 public class JsoupConnection {
 
-    private static final int TIMEOUT = 10000; // Timeout set to 10 seconds
+    public static final String EXTRACTION_DOM = "dom";
+    public static final String EXTRACTION_STREAMING = "streaming";
+
     private static final String USER_AGENT =
             "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.3";
+    private static final List<String> PAGE_CONTENT_TYPES = List.of("text/html", "application/xhtml+xml");
+    // robots.txt is plain text, sitemaps are XML, often gzipped and then sent as a generic binary type
+    private static final List<String> RESOURCE_CONTENT_TYPES = List.of("text/", "application/xml",
+            "application/x-gzip", "application/gzip", "application/octet-stream");
 
-    private CustomCookieStore cookieStore;
     private ErrorTracker errorTracker;
+    private FetchScheduler fetchScheduler;
+    private Executor parseExecutor;
+    private Executor renderExecutor;
+    private PageTransport transport;
+    private HostHealth hostHealth;
+    private RetryPolicy retryPolicy;
+    private SeleniumConnection seleniumConnection;
+    private FallbackPolicy fallbackPolicy;
+    private AtomicLong bytesFetched = new AtomicLong(); // Body bytes received by this connection
+    private long byteBudget = Long.MAX_VALUE; // No further fetches are started once reached
+    private long maxPageBytes = Long.MAX_VALUE; // Cap of a single page body
+    private long maxResourceBytes = Long.MAX_VALUE; // Cap of a single robots.txt or sitemap body
+    private boolean streamingExtraction; // Extract links and paragraphs without parsing a full DOM
+    private ConcurrentMap<String, String> failureReasons = new ConcurrentHashMap<>(); // Why fetches completed with null
 
-    public JsoupConnection() {
-        cookieStore = new CustomCookieStore();
+    /**
+     * Constructor for JsoupConnection.
+     *
+     * @param fetchScheduler The scheduler every fetch of this connection goes through.
+     * @param parseExecutor  The executor the CPU-bound parsing of fetched pages runs on.
+     * @param renderExecutor The executor renders wait for a free browser on, sized to the WebDriver pool.
+     * @param transport      The transport executing the HTTP requests, shared by all connections of a crawler.
+     * @param hostHealth     The negative DNS cache, circuit breakers and timeouts consulted before every fetch, shared by all connections.
+     * @param retryPolicy    Decides which failed fetches are retried and when.
+     * @param seleniumConnection The browser fallback for failed fetches, backed by the crawler's WebDriver pool.
+     * @param fallbackPolicy Decides which pages are rendered with the browser fallback.
+     */
+    public JsoupConnection(FetchScheduler fetchScheduler, Executor parseExecutor, Executor renderExecutor, PageTransport transport,
+                           HostHealth hostHealth, RetryPolicy retryPolicy, SeleniumConnection seleniumConnection,
+                           FallbackPolicy fallbackPolicy) {
         errorTracker = ErrorTracker.getInstance();
+        this.fetchScheduler = fetchScheduler;
+        this.parseExecutor = parseExecutor;
+        this.renderExecutor = renderExecutor;
+        this.transport = transport;
+        this.hostHealth = hostHealth;
+        this.retryPolicy = retryPolicy;
+        this.seleniumConnection = seleniumConnection;
+        this.fallbackPolicy = fallbackPolicy;
+    }
+
+    /**
+     * Limits the body bytes this connection fetches. Fetches that start after the budget is used up
+     * complete with null without a request being sent.
+     */
+    public void setByteBudget(long byteBudget) {
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Limits the body size of single responses. Larger responses are aborted while downloading.
+     *
+     * @param maxPageBytes     The cap for HTML pages.
+     * @param maxResourceBytes The cap for robots.txt and sitemaps.
+     */
+    public void setBodyLimits(long maxPageBytes, long maxResourceBytes) {
+        this.maxPageBytes = maxPageBytes;
+        this.maxResourceBytes = maxResourceBytes;
+    }
+
+    /**
+     * Selects how the links and paragraphs of fetched pages are extracted.
+     *
+     * @param extractionMode {@link #EXTRACTION_DOM} parses the full page with Jsoup, {@link #EXTRACTION_STREAMING}
+     *                       extracts only links and paragraphs from the buffered body with the
+     *                       {@link StreamingHtmlExtractor}, without building a DOM.
+     */
+    public void setExtractionMode(String extractionMode) {
+        this.streamingExtraction = EXTRACTION_STREAMING.equalsIgnoreCase(extractionMode);
+    }
+
+    /**
+     * Counts the body bytes of a page taken from an earlier run against the byte budget.
+     */
+    public void addResumedBytes(long bytes) {
+        bytesFetched.addAndGet(bytes);
+    }
+
+    /**
+     * Returns why the fetch of a URL completed with null, or null if it was not tried, e.g. because the byte
+     * budget was used up.
+     */
+    public String getFailureReason(String url) {
+        return failureReasons.get(url);
+    }
+
+    public boolean isByteBudgetExhausted() {
+        return bytesFetched.get() >= byteBudget;
     }
 
     /**
-     * Establishes a connection to the specified URL and fetches the HTML document asynchronously.
+     * Establishes a connection to the specified URL and fetches the page asynchronously.
+     * The fetch is queued in the fetch scheduler and runs once the host and the global limits allow it,
+     * the response body is then parsed on the parse executor. Fetches to a host that is known to be
+     * unreachable fail at once, without a request and without the Selenium fallback. Transient failures are
+     * retried with backoff before the fallback is tried. The {@link FallbackPolicy} decides whether a failed
+     * fetch, or a fetched page whose content is built by JavaScript, is rendered with Selenium.
      * Tracks errors encountered during the connection and fetching process.
+     * The links and paragraphs are extracted right away, the page only keeps the compressed body, no document.
      *
-     * @param url The URL to connect to and fetch the HTML document from.
-     * @return A CompletableFuture of the HTML document of the specified URL, or null if an error occurs.
-     */
-    public CompletableFuture<Document> fetchHtmlDocument(String url) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                Connection connection = Jsoup.connect(url)
-                        .cookie("Cookie", cookieStore.getCookiesForUrl(url))
-                        .timeout(TIMEOUT)
-                        .userAgent(USER_AGENT)
-                        .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
-                        .header("Accept-Encoding", "gzip, deflate, sdch")
-                        .header("Accept-Language", "en-US,en;q=0.8")
-                        .header("Connection", "keep-alive")
-                        .followRedirects(true)
-                        .parser(Parser.xmlParser()); // Use XML parser for better performance
-
-                return connection.execute().parse();
-            } catch (Exception e) {
-                System.out.println(e.getClass().getSimpleName() + " Exception crawling: " + url + ":" + e.getMessage());
-                errorTracker.addError(new ErrorDetail("Jsoup", e.getClass().getSimpleName(), url, e.getMessage(), null));
-                SeleniumConnection seleniumConnection = new SeleniumConnection();
-                Document document = seleniumConnection.getHtmlContent(url);
-                if (document != null) {
-                    return document;
+     * @param url The URL to connect to and fetch the page from.
+     * @return A CompletableFuture of the crawled page of the specified URL, or null if an error occurs.
+     */
+    public CompletableFuture<CrawledPage> fetchPage(String url) {
+        if (!hostHealth.isAvailable(url)) {
+            return fetchWithSelenium(url, new HostUnavailableException(FetchScheduler.hostOf(url), "Host unavailable: " + url));
+        }
+        return submitWithRetries(url, () -> isByteBudgetExhausted() ? null : fetchResponse(url), 0)
+                .thenApplyAsync(response -> response == null ? null : parseResponse(response), parseExecutor)
+                .handle((page, ex) -> {
+                    if (ex != null) {
+                        return fetchWithSelenium(url, ex);
+                    }
+                    if (page != null && page.needsRendering) {
+                        return renderWithSelenium(url, page.crawledPage);
+                    }
+                    return CompletableFuture.completedFuture(page == null ? null : page.crawledPage);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Fetches a non-HTML resource of a site such as robots.txt or a sitemap through the fetch scheduler.
+     * The body is neither parsed nor counted against the byte budget, and there is no Selenium fallback.
+     *
+     * @param url The URL of the resource.
+     * @return A CompletableFuture of the response, or null if the fetch failed or returned no 2xx status.
+     */
+    public CompletableFuture<FetchResponse> fetchResource(String url) {
+        if (!hostHealth.isAvailable(url)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return submitWithRetries(url, () -> execute(createRequest(url, "*/*")
+                        .acceptedContentTypes(RESOURCE_CONTENT_TYPES)
+                        .maxBodyBytes(maxResourceBytes)), 0)
+                .handle((response, ex) -> {
+                    if (ex != null || response.getStatusCode() < 200 || response.getStatusCode() >= 300) {
+                        return null;
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * Submits the fetch to the scheduler and resubmits it after a backoff delay while it fails transiently.
+     * The delay is waited for outside the scheduler, so it holds neither a fetch thread nor a host slot.
+     */
+    private <T> CompletableFuture<T> submitWithRetries(String url, Callable<T> fetch, int retries) {
+        return fetchScheduler.submit(url, fetch)
+                .handle((result, ex) -> {
+                    if (ex == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable cause = unwrap(ex);
+                    if (retries >= retryPolicy.getMaxRetries() || !retryPolicy.isRetryable(cause)
+                            || !hostHealth.isAvailable(url)) {
+                        return CompletableFuture.<T>failedFuture(cause);
+                    }
+                    long delay = retryPolicy.backoffMillis(retries + 1);
+                    System.out.println(cause.getClass().getSimpleName() + " fetching " + url
+                            + ", retry " + (retries + 1) + " in " + delay + "ms");
+                    Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.runAsync(() -> { }, delayed)
+                            .thenCompose(v -> submitWithRetries(url, fetch, retries + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private FetchRequest createRequest(String url, String accept) {
+        return new FetchRequest(url, hostHealth.timeoutFor(url))
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", accept)
+                .header("Accept-Encoding", "gzip, deflate")
+                .header("Accept-Language", "en-US,en;q=0.8");
+    }
+
+    /**
+     * Executes the request and buffers the response body. Runs on the fetch executor.
+     * Error statuses are raised as {@link HttpStatusException} like a plain Jsoup fetch does.
+     */
+    private TimedResponse fetchResponse(String url) throws IOException {
+        FetchRequest request = createRequest(url, "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8")
+                .acceptedContentTypes(PAGE_CONTENT_TYPES)
+                .maxBodyBytes(maxPageBytes);
+
+        FetchEvent event = new FetchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int statusCode = 0;
+        long bytes = 0;
+        String error = null;
+        try {
+            FetchResponse response = execute(request);
+            long fetchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            statusCode = response.getStatusCode();
+            bytes = response.getBody().length;
+            bytesFetched.addAndGet(bytes);
+            if (statusCode >= 400) {
+                throw new HttpStatusException("HTTP error fetching URL", statusCode, response.getUrl());
+            }
+            return new TimedResponse(response, fetchMillis);
+        } catch (IOException e) {
+            error = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                if (request.getHeadersReceivedNanos() != 0) {
+                    event.timeToFirstByte = TimeUnit.NANOSECONDS.toMillis(request.getHeadersReceivedNanos() - start);
+                }
+                commitFetch(event, url, CrawledPage.ROUTE_HTTP, statusCode, bytes, error);
+            }
+        }
+    }
+
+    private static void commitFetch(FetchEvent event, String url, String route, int statusCode, long bytes, String error) {
+        event.url = url;
+        event.host = FetchScheduler.hostOf(url);
+        event.route = route;
+        event.statusCode = statusCode;
+        event.bytes = bytes;
+        event.error = error;
+        event.commit();
+    }
+
+    /**
+     * A response and how long its fetch took.
+     */
+    private static class TimedResponse {
+        private final FetchResponse response;
+        private final long fetchMillis;
+
+        TimedResponse(FetchResponse response, long fetchMillis) {
+            this.response = response;
+            this.fetchMillis = fetchMillis;
+        }
+    }
+
+    /**
+     * Executes the request once the host health allows it and records the outcome and latency for the host.
+     */
+    private FetchResponse execute(FetchRequest request) throws IOException {
+        boolean probe = hostHealth.checkAvailable(request.getUrl());
+        long start = System.nanoTime();
+        try {
+            FetchResponse response = transport.fetch(request);
+            hostHealth.recordSuccess(request.getUrl());
+            hostHealth.recordLatency(request.getUrl(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return response;
+        } catch (IOException e) {
+            hostHealth.recordFailure(request.getUrl(), e);
+            if (e instanceof SocketTimeoutException || e instanceof HttpTimeoutException) {
+                hostHealth.recordLatency(request.getUrl(), request.getTimeoutMillis());
+            }
+            throw e;
+        } finally {
+            if (probe) {
+                hostHealth.releaseProbe(request.getUrl()); // Also after a RuntimeException of the transport
+            }
+        }
+    }
+
+    /**
+     * Extracts the links and paragraphs of a buffered response into a crawled page and asks the fallback
+     * policy whether it needs rendering. Runs on the parse executor.
+     */
+    private ParsedPage parseResponse(TimedResponse timedResponse) {
+        FetchResponse response = timedResponse.response;
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        try {
+            PageExtract pageExtract;
+            String charset;
+            if (streamingExtraction) {
+                charset = StreamingHtmlExtractor.detectCharset(response.getBody(), response.getCharset()).name();
+                pageExtract = StreamingHtmlExtractor.extract(response.getBody(), charset, response.getUrl());
+            } else {
+                // Use XML parser for better performance
+                Document document = Jsoup.parse(new ByteArrayInputStream(response.getBody()), response.getCharset(), response.getUrl(), Parser.xmlParser());
+                charset = document.charset().name();
+                pageExtract = PageExtract.fromDocument(document);
+            }
+            CrawledPage crawledPage = new CrawledPage(response.getUrl(), response.getStatusCode(), System.currentTimeMillis(),
+                    timedResponse.fetchMillis, CrawledPage.ROUTE_HTTP, response.getBody(), charset, response.getHeaders(),
+                    pageExtract.getLinks(), pageExtract.getParagraphs());
+            commitParse(event, response.getUrl(), streamingExtraction ? EXTRACTION_STREAMING : EXTRACTION_DOM,
+                    response.getBody().length, pageExtract);
+            return new ParsedPage(crawledPage, fallbackPolicy.shouldRenderPage(pageExtract));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Extracts the links and paragraphs of a page source rendered by Selenium. Runs on the parse executor.
+     */
+    private CrawledPage parseRendered(String url, String pageSource, long fetchMillis) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        PageExtract pageExtract = PageExtract.fromDocument(Jsoup.parse(pageSource, url));
+        byte[] body = pageSource.getBytes(StandardCharsets.UTF_8);
+        commitParse(event, url, "rendered", body.length, pageExtract);
+        return new CrawledPage(url, 200, System.currentTimeMillis(), fetchMillis, CrawledPage.ROUTE_SELENIUM,
+                body, StandardCharsets.UTF_8.name(), pageExtract.getLinks(), pageExtract.getParagraphs());
+    }
+
+    private static void commitParse(ParseEvent event, String url, String mode, long bytes, PageExtract pageExtract) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.url = url;
+            event.mode = mode;
+            event.bytes = bytes;
+            event.links = pageExtract.getLinks().size();
+            event.paragraphs = pageExtract.getParagraphs().size();
+            event.commit();
+        }
+    }
+
+    /**
+     * A crawled page and whether the fallback policy wants it rendered with Selenium.
+     */
+    private static class ParsedPage {
+        private final CrawledPage crawledPage;
+        private final boolean needsRendering;
+
+        ParsedPage(CrawledPage crawledPage, boolean needsRendering) {
+            this.crawledPage = crawledPage;
+            this.needsRendering = needsRendering;
+        }
+    }
+
+    /**
+     * Tracks the failed Jsoup fetch and retries the URL with Selenium through the fetch scheduler if the
+     * fallback policy expects a browser to get further. Otherwise the fetch completes with null.
+     */
+    private CompletableFuture<CrawledPage> fetchWithSelenium(String url, Throwable ex) {
+        Throwable e = unwrap(ex);
+        System.out.println(e.getClass().getSimpleName() + " Exception crawling: " + url + ":" + e.getMessage());
+        errorTracker.addError(new ErrorDetail("Jsoup", e.getClass().getSimpleName(), url, e.getMessage(), null));
+        failureReasons.put(url, e.getClass().getSimpleName() + ": " + e.getMessage());
+        if (!fallbackPolicy.shouldRenderAfterFailure(e, hostHealth.isAvailable(url))) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return render(url);
+    }
+
+    /**
+     * Renders a fetched page with Selenium through the fetch scheduler. The fetched page is kept
+     * if rendering fails.
+     */
+    private CompletableFuture<CrawledPage> renderWithSelenium(String url, CrawledPage fetched) {
+        return render(url).handle((rendered, ex) -> rendered != null ? rendered : fetched);
+    }
+
+    /**
+     * Borrows a browser on the render executor first, so that waiting for one holds neither a fetch thread nor a
+     * host slot. The page is then loaded through the fetch scheduler and its source is extracted on the parse executor.
+     */
+    private CompletableFuture<CrawledPage> render(String url) {
+        return CompletableFuture.supplyAsync(() -> seleniumConnection.borrowDriver(url), renderExecutor)
+                .thenCompose(driver -> driver == null ? CompletableFuture.<RenderedSource>completedFuture(null)
+                        : loadRendered(url, driver))
+                .thenApplyAsync(rendered -> rendered == null ? null
+                        : parseRendered(url, rendered.pageSource, rendered.renderMillis), parseExecutor);
+    }
+
+    /**
+     * Loads the page in a borrowed browser through the fetch scheduler. The browser is released once the page is
+     * loaded, or at once if the scheduler never runs the load.
+     */
+    private CompletableFuture<RenderedSource> loadRendered(String url, WebDriverPool.PooledDriver driver) {
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<RenderedSource> loaded;
+        try {
+            loaded = fetchScheduler.submit(url, () -> {
+                started.set(true);
+                FetchEvent event = new FetchEvent();
+                event.begin();
+                long start = System.nanoTime();
+                String pageSource = seleniumConnection.getPageSource(driver, url);
+                event.end();
+                if (event.shouldCommit()) {
+                    commitFetch(event, url, CrawledPage.ROUTE_SELENIUM, pageSource == null ? 0 : 200,
+                            pageSource == null ? 0 : pageSource.getBytes(StandardCharsets.UTF_8).length, pageSource == null ? "NoPageSource" : null);
                 }
-                return null;
+                return pageSource == null ? null
+                        : new RenderedSource(pageSource, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            });
+        } catch (RuntimeException e) {
+            seleniumConnection.release(driver);
+            throw e;
+        }
+        return loaded.whenComplete((rendered, ex) -> {
+            if (ex != null && started.compareAndSet(false, true)) {
+                seleniumConnection.release(driver);
             }
         });
     }
+
+    /**
+     * A page source rendered by Selenium and how long loading it took.
+     */
+    private static class RenderedSource {
+        private final String pageSource;
+        private final long renderMillis;
+
+        RenderedSource(String pageSource, long renderMillis) {
+            this.pageSource = pageSource;
+            this.renderMillis = renderMillis;
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        Throwable cause = ex;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
 }
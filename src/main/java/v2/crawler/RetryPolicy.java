@@ -0,0 +1,60 @@
+package v2.crawler;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jsoup.HttpStatusException;
+
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Decides which failed fetches are retried and how long to wait before the next attempt.
+ * Only transient failures are retried: timeouts, refused or reset connections and the statuses
+ * 429, 502, 503 and 504. Unknown hosts, hosts with an open circuit breaker and all other statuses fail at once.
+ */
+public class RetryPolicy {
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(CrawlerConfig crawlerConfig) {
+        this.maxRetries = Math.max(0, crawlerConfig.maxFetchRetries);
+        this.baseDelayMillis = Math.max(1, crawlerConfig.retryBaseDelayMillis);
+        this.maxDelayMillis = Math.max(baseDelayMillis, crawlerConfig.retryMaxDelayMillis);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public boolean isRetryable(Throwable failure) {
+        if (failure instanceof HttpStatusException) {
+            int status = ((HttpStatusException) failure).getStatusCode();
+            return status == 429 || status == 502 || status == 503 || status == 504;
+        }
+        if (failure instanceof HostUnavailableException) {
+            return false;
+        }
+        return failure instanceof SocketTimeoutException
+                || failure instanceof HttpTimeoutException
+                || failure instanceof SocketException // Includes ConnectException and "Connection reset"
+                || (failure instanceof IOException && "Connection reset".equals(failure.getMessage()));
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half of the delay is fixed, the other half random,
+     * so that retries of many pages of one host do not hit it at the same moment.
+     *
+     * @param retry The number of the retry, starting at 1.
+     * @return The delay before the retry in milliseconds.
+     */
+    public long backoffMillis(int retry) {
+        long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(30, Math.max(0, retry - 1)));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+}
@@ -2,51 +2,108 @@ package v2.crawler.Selenium;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
 import v2.crawler.ErrorTracking.ErrorDetail;
 import v2.crawler.ErrorTracking.ErrorTracker;
+import v2.dataProcessing.ConfigManager;
 
+/**
+ * Fetches pages with a headless Chrome borrowed from a {@link WebDriverPool}, for pages that need JavaScript
+ * or that could not be fetched over plain HTTP.
+ */
 public class SeleniumConnection {
 
     private ErrorTracker errorTracker;
+    private WebDriverPool webDriverPool;
+    private long borrowTimeoutMillis;
 
-    public SeleniumConnection() {
+    /**
+     * @param webDriverPool       The pool the browsers are borrowed from.
+     * @param borrowTimeoutMillis How long a fetch waits for a free browser before it gives up.
+     */
+    public SeleniumConnection(WebDriverPool webDriverPool, long borrowTimeoutMillis) {
         this.errorTracker = ErrorTracker.getInstance();
+        this.webDriverPool = webDriverPool;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
     }
 
     public Document getHtmlContent(String url) {
-        WebDriver driver = null;
+        String pageSource = getPageSource(url);
+        return pageSource == null ? null : Jsoup.parse(pageSource, url);
+    }
+
+    /**
+     * Loads the page in a pooled browser and returns its rendered source.
+     *
+     * @param url The URL of the page.
+     * @return The page source, or null if no browser was free or loading failed.
+     */
+    public String getPageSource(String url) {
+        WebDriverPool.PooledDriver driver = borrowDriver(url);
+        return driver == null ? null : getPageSource(driver, url);
+    }
+
+    /**
+     * Borrows a browser for loading a page, waiting up to the borrow timeout for one to become free.
+     *
+     * @param url The URL of the page the browser is borrowed for.
+     * @return The browser, or null if none was free in time.
+     */
+    public WebDriverPool.PooledDriver borrowDriver(String url) {
+        WebDriverPool.PooledDriver driver;
         try {
-            WebDriverManager.chromedriver().setup();
-            ChromeOptions options = new ChromeOptions();
-            options.addArguments("--headless");
-            options.addArguments("--disable-gpu");
-            options.addArguments("--window-size=1920,1200");
-
-            driver = new ChromeDriver(options);
-            driver.get(url);
-            String pageSource = driver.getPageSource();
-            return Jsoup.parse(pageSource);
+            driver = webDriverPool.borrow(borrowTimeoutMillis);
+        } catch (Exception e) {
+            System.err.println("Exception: " + e.getMessage());
+            errorTracker.addError(new ErrorDetail("Selenium", e.getClass().getSimpleName(), url, e.getMessage(), null));
+            return null;
+        }
+        if (driver == null) {
+            System.err.println("No WebDriver free within " + borrowTimeoutMillis + "ms for: " + url);
+            errorTracker.addError(new ErrorDetail("Selenium", "WebDriverPoolTimeout", url,
+                    "No WebDriver free within " + borrowTimeoutMillis + "ms", null));
+        }
+        return driver;
+    }
+
+    /**
+     * Loads the page in a borrowed browser and returns its rendered source. The browser is released to the pool
+     * whatever the outcome.
+     *
+     * @param driver The browser borrowed with {@link #borrowDriver(String)}.
+     * @param url    The URL of the page.
+     * @return The page source, or null if loading failed.
+     */
+    public String getPageSource(WebDriverPool.PooledDriver driver, String url) {
+        boolean healthy = false;
+        try {
+            String pageSource = driver.load(url);
+            healthy = true;
+            return pageSource;
         } catch (Exception e) {
             System.err.println("Exception: " + e.getMessage());
             errorTracker.addError(new ErrorDetail("Selenium", e.getClass().getSimpleName(), url, e.getMessage(), null));
             return null;
         } finally {
-            if (driver != null) {
-                driver.quit();
-            }
+            webDriverPool.release(driver, healthy);
         }
     }
 
+    /**
+     * Returns a borrowed browser that was not used to the pool.
+     */
+    public void release(WebDriverPool.PooledDriver driver) {
+        webDriverPool.release(driver, true);
+    }
+
     public static void main(String[] args) {
         String url = "https://www.vogt-gmbh.de"; // Replace with the URL you want to fetch
 
-        SeleniumConnection seleniumConnection = new SeleniumConnection();
+        ConfigManager.CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        WebDriverPool webDriverPool = new WebDriverPool(crawlerConfig);
+        SeleniumConnection seleniumConnection = new SeleniumConnection(webDriverPool, crawlerConfig.webDriverBorrowTimeoutMillis);
         Document htmlContent = seleniumConnection.getHtmlContent(url);
+        webDriverPool.shutdown();
 
         if (htmlContent != null) {
             System.out.println("HTML Content:");
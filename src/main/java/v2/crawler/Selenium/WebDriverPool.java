@@ -0,0 +1,225 @@
+package v2.crawler.Selenium;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * A bounded pool of headless Chrome drivers shared by all Selenium fetches of a crawler.
+ * <ul>
+ *     <li>The chromedriver binary is set up once per JVM, not per fetch.</li>
+ *     <li>At most {@code webDriverPoolSize} browsers exist at a time. Callers wait for a free driver for at most
+ *     {@code webDriverBorrowTimeoutMillis}.</li>
+ *     <li>A driver is health-checked before it is handed out and replaced if its browser is gone.</li>
+ *     <li>A driver is quit and replaced after {@code webDriverMaxPagesPerDriver} pages, which bounds the memory
+ *     a long-running browser accumulates.</li>
+ * </ul>
+ */
+public class WebDriverPool {
+
+    private static boolean driverSetUp;
+    private static RuntimeException driverSetUpFailure; // A failed setup is not retried by every fallback
+
+    private final CrawlerConfig crawlerConfig;
+    private final Supplier<WebDriver> driverFactory;
+    private final BlockingQueue<PooledDriver> idleDrivers;
+    private final Semaphore driverPermits; // One permit per driver that may exist, idle or borrowed
+    private volatile boolean shutdown;
+
+    public WebDriverPool(CrawlerConfig crawlerConfig) {
+        this(crawlerConfig, WebDriverPool::startChromeDriver);
+    }
+
+    /**
+     * @param crawlerConfig The configuration holding the pool size and the driver limits.
+     * @param driverFactory Starts a new browser whenever the pool needs one.
+     */
+    public WebDriverPool(CrawlerConfig crawlerConfig, Supplier<WebDriver> driverFactory) {
+        this.crawlerConfig = crawlerConfig;
+        this.driverFactory = driverFactory;
+        int poolSize = Math.max(1, crawlerConfig.webDriverPoolSize);
+        this.idleDrivers = new ArrayBlockingQueue<>(poolSize);
+        this.driverPermits = new Semaphore(poolSize, true);
+    }
+
+    /**
+     * Starts the drivers of the pool on a background thread, so the first JS fallback does not pay for the
+     * browser startup. Drivers that fail to start are started on demand instead.
+     */
+    public void warmUp() {
+        Thread warmUp = new Thread(() -> {
+            List<PooledDriver> started = new ArrayList<>();
+            try {
+                for (int i = 0; i < crawlerConfig.webDriverPoolSize && !shutdown; i++) {
+                    PooledDriver driver = borrow(0);
+                    if (driver == null) {
+                        break; // All drivers already in use
+                    }
+                    started.add(driver);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Could not start WebDriver: " + e.getMessage());
+            } finally {
+                started.forEach(driver -> release(driver, true));
+            }
+        }, "webdriver-pool-warmup");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
+
+    /**
+     * Borrows a healthy driver, starting a new one if no idle driver is left and the pool is not full.
+     *
+     * @param timeoutMillis How long to wait for a free driver.
+     * @return The driver, or null if none became free within the timeout or the pool is shut down.
+     * @throws RuntimeException If a new browser cannot be started.
+     */
+    public PooledDriver borrow(long timeoutMillis) {
+        try {
+            if (shutdown || !driverPermits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            PooledDriver driver;
+            while ((driver = idleDrivers.poll()) != null) {
+                if (driver.isHealthy()) {
+                    return driver;
+                }
+                driver.quit();
+            }
+            return startDriver();
+        } catch (RuntimeException e) {
+            driverPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a borrowed driver to the pool.
+     *
+     * @param driver  The borrowed driver.
+     * @param healthy false if the browser failed while it was used, it is then quit instead of reused.
+     */
+    public void release(PooledDriver driver, boolean healthy) {
+        try {
+            if (shutdown || !healthy || driver.pagesServed >= crawlerConfig.webDriverMaxPagesPerDriver
+                    || !driver.reset() || !idleDrivers.offer(driver)) {
+                driver.quit(); // Recycled, the next borrow starts a fresh browser
+            }
+        } finally {
+            driverPermits.release();
+        }
+    }
+
+    /**
+     * Quits all idle drivers. Borrowed drivers are quit when they are released.
+     */
+    public void shutdown() {
+        shutdown = true;
+        PooledDriver driver;
+        while ((driver = idleDrivers.poll()) != null) {
+            driver.quit();
+        }
+    }
+
+    private PooledDriver startDriver() {
+        WebDriver webDriver = driverFactory.get();
+        webDriver.manage().timeouts().pageLoadTimeout(Duration.ofMillis(crawlerConfig.webDriverPageLoadTimeoutMillis));
+        return new PooledDriver(webDriver);
+    }
+
+    private static WebDriver startChromeDriver() {
+        setUpDriverBinary();
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--window-size=1920,1200");
+        return new ChromeDriver(options);
+    }
+
+    private static synchronized void setUpDriverBinary() {
+        if (driverSetUpFailure != null) {
+            throw driverSetUpFailure;
+        }
+        if (!driverSetUp) {
+            try {
+                WebDriverManager.chromedriver().setup();
+                driverSetUp = true;
+            } catch (RuntimeException e) {
+                driverSetUpFailure = e;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * A browser of the pool and the number of pages it has loaded.
+     */
+    public static class PooledDriver {
+        private final WebDriver webDriver;
+        private int pagesServed;
+
+        PooledDriver(WebDriver webDriver) {
+            this.webDriver = webDriver;
+        }
+
+        /**
+         * Loads the URL and returns the page source after the browser has run its scripts.
+         */
+        public String load(String url) {
+            pagesServed++;
+            webDriver.get(url);
+            return webDriver.getPageSource();
+        }
+
+        public WebDriver getWebDriver() {
+            return webDriver;
+        }
+
+        private boolean isHealthy() {
+            try {
+                webDriver.getWindowHandle();
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Clears the state the last page left behind, so it cannot leak into the next site.
+         */
+        private boolean reset() {
+            try {
+                webDriver.manage().deleteAllCookies();
+                webDriver.get("about:blank");
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        private void quit() {
+            try {
+                webDriver.quit();
+            } catch (RuntimeException e) {
+                System.err.println("Error quitting WebDriver: " + e.getMessage());
+            }
+        }
+    }
+}
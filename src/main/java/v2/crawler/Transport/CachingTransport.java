@@ -0,0 +1,38 @@
+package v2.crawler.Transport;
+
+import java.io.IOException;
+
+/**
+ * Transport decorator that revalidates pages against the {@link HttpCache}.
+ * Cached pages are requested with If-None-Match / If-Modified-Since, on a 304 the stored body is returned
+ * instead of downloading the page again. Fresh 200 responses with a validator are stored for the next run.
+ */
+public class CachingTransport implements PageTransport {
+
+    private final PageTransport delegate;
+    private final HttpCache httpCache;
+
+    public CachingTransport(PageTransport delegate, HttpCache httpCache) {
+        this.delegate = delegate;
+        this.httpCache = httpCache;
+    }
+
+    @Override
+    public FetchResponse fetch(FetchRequest request) throws IOException {
+        HttpCache.CacheEntry cached = httpCache.load(request.getUrl());
+        if (cached != null) {
+            request.header("If-None-Match", cached.etag);
+            request.header("If-Modified-Since", cached.lastModified);
+        }
+
+        FetchResponse response = delegate.fetch(request);
+
+        if (response.getStatusCode() == 304 && cached != null) {
+            return cached.toResponse();
+        }
+        if (response.getStatusCode() == 200) {
+            httpCache.store(request.getUrl(), response);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,86 @@
+package v2.crawler.Transport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Applies the content limits of a {@link FetchRequest} to a response. The headers are checked as soon as they
+ * arrive, before any of the body is read, and the body is then read with a hard byte cap, so a large PDF or video
+ * behind an extensionless URL is aborted after its headers instead of being downloaded and parsed.
+ */
+public class ContentGate {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Rejects a response whose declared Content-Type is not accepted by the request or whose Content-Length
+     * exceeds its cap. The Content-Type is only checked for 2xx responses, error pages are never parsed anyway.
+     * A missing header passes, the body cap still applies.
+     *
+     * @param request       The request holding the accepted content types and the body cap.
+     * @param statusCode    The status of the response.
+     * @param contentType   The Content-Type header of the response, or null.
+     * @param contentLength The Content-Length header of the response, or null.
+     * @throws RejectedContentException If the response must not be read.
+     */
+    public static void checkHeaders(FetchRequest request, int statusCode, String contentType, String contentLength)
+            throws RejectedContentException {
+        if (statusCode >= 200 && statusCode < 300 && !isAccepted(contentType, request.getAcceptedContentTypes())) {
+            throw new RejectedContentException(request.getUrl(), "Content-Type " + contentType + " not accepted");
+        }
+        if (contentLength != null) {
+            try {
+                long length = Long.parseLong(contentLength.trim());
+                if (length > request.getMaxBodyBytes()) {
+                    throw new RejectedContentException(request.getUrl(),
+                            "Content-Length " + length + " exceeds " + request.getMaxBodyBytes() + " bytes");
+                }
+            } catch (NumberFormatException e) {
+                // Ignored, the body cap decides
+            }
+        }
+    }
+
+    /**
+     * Reads the body up to the request's cap and closes the stream.
+     *
+     * @throws RejectedContentException If the body is larger than the cap, the rest is not read.
+     */
+    public static byte[] readBody(FetchRequest request, InputStream body) throws IOException {
+        long maxBytes = request.getMaxBodyBytes();
+        try (InputStream in = body) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new RejectedContentException(request.getUrl(), "Body exceeds " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Matches the media type of a Content-Type header against accepted types. An accepted type ending with
+     * "/" matches every subtype, e.g. "text/". An empty list accepts everything.
+     */
+    static boolean isAccepted(String contentType, List<String> acceptedContentTypes) {
+        if (contentType == null || contentType.isBlank() || acceptedContentTypes.isEmpty()) {
+            return true;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        for (String accepted : acceptedContentTypes) {
+            if (accepted.endsWith("/") ? mediaType.startsWith(accepted) : mediaType.equals(accepted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
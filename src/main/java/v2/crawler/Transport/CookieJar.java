@@ -0,0 +1,209 @@
+package v2.crawler.Transport;
+
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.CookieStore;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe cookie store shared by all fetches of a crawler, indexed by the registrable domain of the cookies.
+ * A request only looks at the cookies of its own registrable domain, so the cookies of a site, e.g. a consent or
+ * session cookie set on the homepage, are sent with every sub-page fetched afterwards and never with another site.
+ * Domains and paths are matched as browsers do (RFC 6265), expired cookies are dropped when they are looked up.
+ * <p>
+ * The transports hand the jar to their HTTP library, which stores the cookies of every response including
+ * redirects and adds the matching cookies to every request.
+ */
+public class CookieJar implements CookieStore {
+
+    // Public suffixes with two labels, below them the registrable domain has three labels
+    private static final Set<String> TWO_LABEL_SUFFIXES = Set.of("co.uk", "org.uk", "ac.uk", "gov.uk", "me.uk",
+            "ltd.uk", "plc.uk", "co.at", "or.at", "ac.at", "gv.at", "com.au", "net.au", "org.au", "co.nz", "co.jp",
+            "co.za", "co.in", "com.br", "com.cn", "com.tr", "com.mx", "com.pl", "com.es", "com.ar", "com.sg");
+
+    private final ConcurrentMap<String, ConcurrentMap<String, HttpCookie>> cookiesByDomain = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a cookie handler on this jar. Cookies are accepted for the host of the response and the domains
+     * above it up to the registrable domain. The JDK's {@link CookiePolicy#ACCEPT_ORIGINAL_SERVER} is not used,
+     * it rejects the common {@code Domain=example.de} set by www.example.de.
+     */
+    public CookieManager newCookieManager() {
+        return new CookieManager(this, this::accepts);
+    }
+
+    private boolean accepts(URI uri, HttpCookie cookie) {
+        String host = hostOf(uri);
+        if (host == null || cookie.getDomain() == null) {
+            return false;
+        }
+        String domain = normalizeDomain(cookie.getDomain());
+        return domainMatches(host, domain) && domain.length() >= registrableDomain(host).length();
+    }
+
+    @Override
+    public void add(URI uri, HttpCookie cookie) {
+        String domain = cookie.getDomain() != null ? normalizeDomain(cookie.getDomain()) : hostOf(uri);
+        if (domain == null || domain.isEmpty()) {
+            return;
+        }
+        cookie.setDomain(domain);
+        if (cookie.getPath() == null) {
+            cookie.setPath(defaultPath(uri));
+        }
+        Map<String, HttpCookie> cookies = cookiesByDomain.computeIfAbsent(registrableDomain(domain),
+                key -> new ConcurrentHashMap<>());
+        String key = cookie.getName() + ";" + domain + ";" + cookie.getPath();
+        if (cookie.hasExpired()) {
+            cookies.remove(key); // A Max-Age of 0 or an Expires in the past deletes the cookie
+        } else {
+            cookies.put(key, cookie);
+        }
+    }
+
+    /**
+     * Returns the unexpired cookies whose domain and path match the URI.
+     */
+    @Override
+    public List<HttpCookie> get(URI uri) {
+        String host = hostOf(uri);
+        List<HttpCookie> matching = new ArrayList<>();
+        if (host == null) {
+            return matching;
+        }
+        Map<String, HttpCookie> cookies = cookiesByDomain.get(registrableDomain(host));
+        if (cookies == null) {
+            return matching;
+        }
+        String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        cookies.values().removeIf(HttpCookie::hasExpired);
+        for (HttpCookie cookie : cookies.values()) {
+            if (domainMatches(host, cookie.getDomain()) && pathMatches(path, cookie.getPath())
+                    && (secure || !cookie.getSecure())) {
+                matching.add(cookie);
+            }
+        }
+        return matching;
+    }
+
+    @Override
+    public List<HttpCookie> getCookies() {
+        List<HttpCookie> all = new ArrayList<>();
+        for (Map<String, HttpCookie> cookies : cookiesByDomain.values()) {
+            cookies.values().removeIf(HttpCookie::hasExpired);
+            all.addAll(cookies.values());
+        }
+        return all;
+    }
+
+    @Override
+    public List<URI> getURIs() {
+        List<URI> uris = new ArrayList<>();
+        for (String domain : cookiesByDomain.keySet()) {
+            uris.add(URI.create("http://" + domain + "/"));
+        }
+        return uris;
+    }
+
+    @Override
+    public boolean remove(URI uri, HttpCookie cookie) {
+        if (cookie.getDomain() == null) {
+            return false;
+        }
+        Map<String, HttpCookie> cookies = cookiesByDomain.get(registrableDomain(normalizeDomain(cookie.getDomain())));
+        return cookies != null && cookies.values().remove(cookie);
+    }
+
+    @Override
+    public boolean removeAll() {
+        boolean empty = cookiesByDomain.isEmpty();
+        cookiesByDomain.clear();
+        return !empty;
+    }
+
+    /**
+     * Drops the cookies of the registrable domain of the URL, once the crawl of its site is complete.
+     */
+    public void removeSite(String url) {
+        try {
+            String host = hostOf(URI.create(url.trim()));
+            if (host != null) {
+                cookiesByDomain.remove(registrableDomain(host));
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a URL, so there are no cookies for it
+        }
+    }
+
+    /**
+     * Returns the registrable domain of a host, e.g. "example.de" for "www.shop.example.de" and "example.co.uk"
+     * for "www.example.co.uk". IP addresses are returned unchanged. Only a small list of two-label public suffixes
+     * is known, which covers the sites of the business partners.
+     */
+    static String registrableDomain(String host) {
+        String domain = normalizeDomain(host);
+        if (domain.indexOf(':') >= 0 || domain.matches("[0-9.]+")) {
+            return domain; // IPv6 or IPv4 address
+        }
+        String[] labels = domain.split("\\.");
+        if (labels.length <= 2) {
+            return domain;
+        }
+        String lastTwo = labels[labels.length - 2] + "." + labels[labels.length - 1];
+        if (TWO_LABEL_SUFFIXES.contains(lastTwo)) {
+            return labels[labels.length - 3] + "." + lastTwo;
+        }
+        return lastTwo;
+    }
+
+    /**
+     * Domain match of RFC 6265: the host is the cookie domain or a subdomain of it.
+     */
+    static boolean domainMatches(String host, String domain) {
+        return host.equals(domain) || (host.endsWith(domain) && host.charAt(host.length() - domain.length() - 1) == '.');
+    }
+
+    /**
+     * Path match of RFC 6265: the request path is the cookie path or below it.
+     */
+    static boolean pathMatches(String requestPath, String cookiePath) {
+        if (cookiePath == null || requestPath.equals(cookiePath)) {
+            return true;
+        }
+        return requestPath.startsWith(cookiePath)
+                && (cookiePath.endsWith("/") || requestPath.charAt(cookiePath.length()) == '/');
+    }
+
+    private static String defaultPath(URI uri) {
+        String path = uri.getPath();
+        if (path == null || !path.startsWith("/")) {
+            return "/";
+        }
+        int lastSlash = path.lastIndexOf('/');
+        return lastSlash == 0 ? "/" : path.substring(0, lastSlash);
+    }
+
+    private static String hostOf(URI uri) {
+        return uri.getHost() == null ? null : normalizeDomain(uri.getHost());
+    }
+
+    private static String normalizeDomain(String domain) {
+        String normalized = domain.trim().toLowerCase(Locale.ROOT);
+        if (normalized.startsWith(".")) {
+            normalized = normalized.substring(1);
+        }
+        if (normalized.endsWith(".")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,82 @@
+package v2.crawler.Transport;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single GET request handed to a {@link PageTransport}.
+ */
+public class FetchRequest {
+    private final String url;
+    private final Map<String, String> headers;
+    private int timeoutMillis;
+    private List<String> acceptedContentTypes = Collections.emptyList(); // Empty accepts every type
+    private long maxBodyBytes = Long.MAX_VALUE;
+    private long headersReceivedNanos; // System.nanoTime() once the response headers were in, 0 before
+
+    public FetchRequest(String url, int timeoutMillis) {
+        this.url = url;
+        this.headers = new LinkedHashMap<>();
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public FetchRequest header(String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            headers.put(name, value);
+        }
+        return this;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public List<String> getAcceptedContentTypes() {
+        return acceptedContentTypes;
+    }
+
+    /**
+     * Limits the media types of 2xx responses, see {@link ContentGate}. A type ending with "/" accepts all subtypes.
+     */
+    public FetchRequest acceptedContentTypes(List<String> acceptedContentTypes) {
+        this.acceptedContentTypes = acceptedContentTypes;
+        return this;
+    }
+
+    public long getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * Limits the decoded body size, larger responses are aborted.
+     */
+    public FetchRequest maxBodyBytes(long maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+        return this;
+    }
+
+    public long getHeadersReceivedNanos() {
+        return headersReceivedNanos;
+    }
+
+    /**
+     * Called by the transport once the status and headers of the response are in, before the body is read.
+     */
+    public void markHeadersReceived() {
+        this.headersReceivedNanos = System.nanoTime();
+    }
+}
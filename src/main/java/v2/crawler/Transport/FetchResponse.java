@@ -0,0 +1,79 @@
+package v2.crawler.Transport;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The buffered response of a {@link PageTransport}: status, headers and the decoded body bytes.
+ * Header names are case-insensitive.
+ */
+public class FetchResponse {
+    private final String url;
+    private final int statusCode;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+
+    /**
+     * @param url        The final URL of the response, after redirects.
+     * @param statusCode The HTTP status code.
+     * @param headers    The response headers.
+     * @param body       The body with any content encoding (gzip, deflate) already removed.
+     */
+    public FetchResponse(String url, int statusCode, Map<String, List<String>> headers, byte[] body) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.headers.putAll(headers);
+        this.body = body;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Returns the first value of the given header, or null if the header is not present.
+     */
+    public String header(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getContentType() {
+        return header("Content-Type");
+    }
+
+    /**
+     * Returns the charset declared in the Content-Type header, or null if none is declared.
+     * Jsoup then detects the charset from a BOM or the meta tags of the document.
+     */
+    public String getCharset() {
+        String contentType = getContentType();
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                String charset = trimmed.substring("charset=".length()).replace("\"", "").trim();
+                return charset.isEmpty() ? null : charset;
+            }
+        }
+        return null;
+    }
+}
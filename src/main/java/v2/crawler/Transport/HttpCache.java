@@ -0,0 +1,132 @@
+package v2.crawler.Transport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import v2.crawler.UrlNormalizer;
+
+/**
+ * On-disk HTTP cache holding the validators and the body of every fetched page that sent an ETag or a
+ * Last-Modified header. Each URL is stored as a metadata JSON file and a body file, named by the SHA-256 of
+ * the normalized URL and spread over 256 sub-directories.
+ */
+public class HttpCache {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Path directory;
+
+    public HttpCache(String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Loads the cached entry of a URL.
+     *
+     * @return The entry, or null if the URL is not cached or the entry cannot be read.
+     */
+    public CacheEntry load(String url) {
+        Path metaFile = entryPath(url, ".json");
+        Path bodyFile = entryPath(url, ".body");
+        if (!Files.exists(metaFile) || !Files.exists(bodyFile)) {
+            return null;
+        }
+        try {
+            CacheEntry entry = objectMapper.readValue(metaFile.toFile(), CacheEntry.class);
+            entry.body = Files.readAllBytes(bodyFile);
+            return entry;
+        } catch (IOException e) {
+            System.err.println("Error reading cached entry for " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores a response if it carries a validator. Responses without ETag and Last-Modified cannot be
+     * revalidated and are not stored.
+     */
+    public void store(String url, FetchResponse response) {
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        if (etag == null && lastModified == null) {
+            return;
+        }
+
+        CacheEntry entry = new CacheEntry();
+        entry.url = response.getUrl();
+        entry.statusCode = response.getStatusCode();
+        entry.etag = etag;
+        entry.lastModified = lastModified;
+        entry.headers = response.getHeaders();
+        entry.storedAt = System.currentTimeMillis();
+
+        try {
+            Path bodyFile = entryPath(url, ".body");
+            Files.createDirectories(bodyFile.getParent());
+            // Body before metadata, an entry only counts as present once both files exist
+            writeAtomically(bodyFile, response.getBody());
+            writeAtomically(entryPath(url, ".json"), objectMapper.writeValueAsBytes(entry));
+        } catch (IOException e) {
+            System.err.println("Error caching " + url + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path entryPath(String url, String suffix) {
+        String hash = sha256Hex(UrlNormalizer.normalize(url));
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + suffix);
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A cached response. The body is kept in a separate file and not part of the JSON metadata.
+     */
+    public static class CacheEntry {
+        public String url;
+        public int statusCode;
+        public String etag;
+        public String lastModified;
+        public Map<String, List<String>> headers = Collections.emptyMap();
+        public long storedAt;
+        @JsonIgnore
+        public byte[] body;
+
+        /**
+         * Rebuilds the response from the cache.
+         */
+        public FetchResponse toResponse() {
+            return new FetchResponse(url, statusCode, headers, body);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package v2.crawler.Transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Transport based on one shared {@link HttpClient}.
+ * The client keeps connections to a host alive and reuses them for the sub-pages of a site, negotiates
+ * HTTP/2 over TLS where the server offers it and reuses TLS sessions through the shared SSL context. Plain http
+ * URLs are requested with HTTP/1.1, so no h2c upgrade is attempted. The body is only streamed through the
+ * {@link ContentGate} and decoded here, parsing is left to Jsoup. The request timeout is a deadline for the whole
+ * fetch: the HttpClient enforces it until the headers are in, a timer closes the body stream once it has passed.
+ * Cookies are kept in a {@link CookieJar}, the client applies it to every request and redirect.
+ */
+public class HttpClientTransport implements PageTransport {
+
+    // Headers the HttpClient manages itself and refuses to take from the caller
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    // Closes body streams that are still being read when their fetch's deadline has passed
+    private static final ScheduledThreadPoolExecutor deadlineTimer = createDeadlineTimer();
+
+    private final HttpClient httpClient;
+
+    public HttpClientTransport(CrawlerConfig crawlerConfig, CookieJar cookieJar) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2) // Over TLS only, falls back to HTTP/1.1 if the server does not offer h2
+                .followRedirects(HttpClient.Redirect.ALWAYS)
+                .cookieHandler(cookieJar.newCookieManager())
+                .connectTimeout(Duration.ofMillis(crawlerConfig.connectTimeoutMillis))
+                .build();
+    }
+
+    @Override
+    public FetchResponse fetch(FetchRequest request) throws IOException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(request.getTimeoutMillis());
+        HttpRequest.Builder builder;
+        try {
+            URI uri = URI.create(request.getUrl());
+            builder = HttpRequest.newBuilder(uri)
+                    .GET()
+                    .timeout(Duration.ofMillis(request.getTimeoutMillis()));
+            if ("http".equalsIgnoreCase(uri.getScheme())) {
+                builder.version(HttpClient.Version.HTTP_1_1); // h2c upgrades are rarely offered and cost a round trip
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + request.getUrl(), e);
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+
+        // The body is streamed, send returns once the headers are in and nothing of the body has been read yet
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Fetch interrupted: " + request.getUrl());
+        }
+        request.markHeadersReceived();
+
+        InputStream bodyStream = response.body();
+        try {
+            ContentGate.checkHeaders(request, response.statusCode(),
+                    response.headers().firstValue("Content-Type").orElse(null),
+                    response.headers().firstValue("Content-Length").orElse(null));
+        } catch (RejectedContentException e) {
+            bodyStream.close(); // Aborts the exchange instead of draining the body
+            throw e;
+        }
+
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = deadlineTimer.schedule(() -> {
+            expired.set(true);
+            closeQuietly(bodyStream);
+        }, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        byte[] body;
+        try {
+            String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("");
+            body = ContentGate.readBody(request, decode(bodyStream, contentEncoding));
+        } catch (IOException e) {
+            if (expired.get()) {
+                throw new HttpTimeoutException("Body not received within " + request.getTimeoutMillis() + "ms: " + request.getUrl());
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+        }
+        if (expired.get()) {
+            // Closed right after the last read, the body may be cut off
+            throw new HttpTimeoutException("Body not received within " + request.getTimeoutMillis() + "ms: " + request.getUrl());
+        }
+        return new FetchResponse(response.uri().toString(), response.statusCode(), response.headers().map(), body);
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // The reading thread sees the closed stream
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createDeadlineTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "http-body-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true); // Most fetches finish in time, their timer tasks are dropped at once
+        return timer;
+    }
+
+    /**
+     * Removes the content encoding, the HttpClient hands the body over as sent by the server.
+     * Decoding is streamed, so the byte cap applies to the decoded size.
+     */
+    private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (encoding.isEmpty() || encoding.equals("identity")) {
+            return body;
+        }
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return gunzipOrEmpty(body);
+        }
+        if (encoding.equals("deflate")) {
+            return new InflaterInputStream(body);
+        }
+        body.close();
+        throw new IOException("Unsupported content encoding: " + contentEncoding);
+    }
+
+    /**
+     * Wraps the body in a GZIPInputStream, which reads the gzip header right away. An empty body,
+     * e.g. of a 304 response, stays empty.
+     */
+    private static InputStream gunzipOrEmpty(InputStream body) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body, 1);
+        int first = in.read();
+        if (first == -1) {
+            in.close();
+            return InputStream.nullInputStream();
+        }
+        in.unread(first);
+        return new GZIPInputStream(in);
+    }
+}
@@ -0,0 +1,58 @@
+package v2.crawler.Transport;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+/**
+ * Transport based on {@code Jsoup.connect}. Every request opens its own connection.
+ * Jsoup sends the cookies of the {@link CookieJar} and stores the cookies of redirects in it with the JDK's
+ * original-server policy, the cookies of the final response are stored once more with the jar's own policy.
+ */
+public class JsoupTransport implements PageTransport {
+
+    private final CookieJar cookieJar;
+    private final CookieManager cookieManager;
+
+    public JsoupTransport(CookieJar cookieJar) {
+        this.cookieJar = cookieJar;
+        this.cookieManager = cookieJar.newCookieManager();
+    }
+
+    @Override
+    public FetchResponse fetch(FetchRequest request) throws IOException {
+        Connection.Response response = Jsoup.connect(request.getUrl())
+                .headers(request.getHeaders())
+                .timeout(request.getTimeoutMillis())
+                .followRedirects(true)
+                .ignoreHttpErrors(true)
+                .ignoreContentType(true) // Checked by the ContentGate
+                .maxBodySize(0) // Capped by the ContentGate, which aborts instead of truncating
+                .cookieStore(cookieJar)
+                .execute();
+        request.markHeadersReceived(); // The body is read from the stream below
+
+        Map<String, List<String>> headers = response.multiHeaders();
+        try {
+            cookieManager.put(response.url().toURI(), headers);
+        } catch (URISyntaxException e) {
+            // No cookies for a URL that is not a valid URI
+        }
+
+        BufferedInputStream bodyStream = response.bodyStream();
+        try {
+            ContentGate.checkHeaders(request, response.statusCode(), response.contentType(), response.header("Content-Length"));
+        } catch (RejectedContentException e) {
+            bodyStream.close();
+            throw e;
+        }
+        byte[] body = ContentGate.readBody(request, bodyStream);
+        return new FetchResponse(response.url().toString(), response.statusCode(), headers, body);
+    }
+}
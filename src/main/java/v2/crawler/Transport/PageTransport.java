@@ -0,0 +1,41 @@
+package v2.crawler.Transport;
+
+import java.io.IOException;
+
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+/**
+ * Executes page fetches for the crawler. Implementations return the response for every HTTP status,
+ * deciding whether a status is an error is up to the caller.
+ */
+public interface PageTransport {
+
+    String JSOUP = "jsoup";
+    String HTTP_CLIENT = "httpclient";
+
+    /**
+     * Executes the request and buffers the response body. Blocks until the response is complete.
+     *
+     * @param request The request to execute.
+     * @return The buffered response.
+     * @throws IOException If the connection fails or times out.
+     */
+    FetchResponse fetch(FetchRequest request) throws IOException;
+
+    /**
+     * Creates the transport selected by {@code CrawlerConfig.transport}, wrapped in a
+     * {@link CachingTransport} if {@code CrawlerConfig.useHttpCache} is set.
+     *
+     * @param crawlerConfig The configuration selecting the transport.
+     * @param cookieJar     The cookies sent with and stored from every fetch of the transport.
+     */
+    static PageTransport create(CrawlerConfig crawlerConfig, CookieJar cookieJar) {
+        PageTransport transport = JSOUP.equalsIgnoreCase(crawlerConfig.transport)
+                ? new JsoupTransport(cookieJar)
+                : new HttpClientTransport(crawlerConfig, cookieJar);
+        if (crawlerConfig.useHttpCache) {
+            transport = new CachingTransport(transport, new HttpCache(crawlerConfig.httpCacheDirectory));
+        }
+        return transport;
+    }
+}
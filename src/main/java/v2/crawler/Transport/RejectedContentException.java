@@ -0,0 +1,22 @@
+package v2.crawler.Transport;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link PageTransport} when a response is aborted because of its Content-Type or size.
+ */
+public class RejectedContentException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String url;
+
+    public RejectedContentException(String url, String message) {
+        super(message);
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+}
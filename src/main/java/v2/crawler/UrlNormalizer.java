@@ -0,0 +1,57 @@
+package v2.crawler;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * Normalizes URLs so that different spellings of the same page are recognized as one page.
+ */
+public class UrlNormalizer {
+
+    /**
+     * Lower-cases scheme and host, drops the fragment, the default port and a trailing slash of the path.
+     * URLs that cannot be parsed are returned trimmed but otherwise unchanged.
+     *
+     * @param url The URL to normalize.
+     * @return The normalized URL.
+     */
+    public static String normalize(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return stripFragment(trimmed);
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            String host = uri.getHost().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            boolean defaultPort = port == -1
+                    || (port == 80 && scheme.equals("http"))
+                    || (port == 443 && scheme.equals("https"));
+
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+
+            StringBuilder normalized = new StringBuilder(trimmed.length());
+            normalized.append(scheme).append("://").append(host);
+            if (!defaultPort) {
+                normalized.append(':').append(port);
+            }
+            normalized.append(path);
+            if (uri.getRawQuery() != null) {
+                normalized.append('?').append(uri.getRawQuery());
+            }
+            return normalized.toString();
+        } catch (URISyntaxException e) {
+            return stripFragment(trimmed);
+        }
+    }
+
+    private static String stripFragment(String url) {
+        int fragment = url.indexOf('#');
+        return fragment >= 0 ? url.substring(0, fragment) : url;
+    }
+}
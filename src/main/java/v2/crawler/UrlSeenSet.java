@@ -0,0 +1,174 @@
+package v2.crawler;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Run-wide set of fetched URLs.
+ * URLs are normalized and stored as 64-bit fingerprints in a primitive open-addressing table, so an entry
+ * costs 11 to 21 bytes of table and about 1.25 bytes of Bloom filter instead of a String in a HashSet.
+ * The Bloom filter in front answers most lookups of new URLs without probing the table.
+ * The set is split into stripes with their own lock, so fetch threads rarely contend.
+ */
+public class UrlSeenSet {
+
+    private static final int STRIPES = 16; // Power of two
+    private static final int BLOOM_BITS_PER_URL = 10; // About 1% false positives with 7 hash functions
+    private static final int BLOOM_HASHES = 7;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param expectedUrls The number of URLs expected in a run, used to size the Bloom filter and the tables.
+     *                     The set still grows beyond it, the Bloom filter then only gets less selective.
+     */
+    public UrlSeenSet(long expectedUrls) {
+        long perStripe = Math.max(1024, expectedUrls / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Adds the URL to the set.
+     *
+     * @param url The URL, normalized before its fingerprint is taken.
+     * @return true if the URL was not in the set yet and should be fetched.
+     */
+    public boolean add(String url) {
+        long fingerprint = fingerprint(UrlNormalizer.normalize(url));
+        return stripeOf(fingerprint).add(fingerprint);
+    }
+
+    /**
+     * @param url The URL, normalized before its fingerprint is taken.
+     * @return true if the URL has been added before.
+     */
+    public boolean contains(String url) {
+        long fingerprint = fingerprint(UrlNormalizer.normalize(url));
+        return stripeOf(fingerprint).contains(fingerprint);
+    }
+
+    /**
+     * Number of URLs in the set.
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeOf(long fingerprint) {
+        return stripes[(int) (fingerprint >>> 60) & (STRIPES - 1)];
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer for a good bit spread.
+     */
+    static long fingerprint(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash; // 0 marks an empty slot
+    }
+
+    /**
+     * A Bloom filter and a linear-probing table of fingerprints, guarded by the stripe's monitor.
+     */
+    private static class Stripe {
+        private final long[] bloom;
+        private final long bloomBits;
+        private long[] table;
+        private int size;
+
+        Stripe(long expectedUrls) {
+            this.bloomBits = Math.max(64, expectedUrls * BLOOM_BITS_PER_URL);
+            this.bloom = new long[(int) ((bloomBits + 63) / 64)];
+            int capacity = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16, expectedUrls * 4 / 3)) - 1) << 1;
+            this.table = new long[capacity];
+        }
+
+        synchronized boolean add(long fingerprint) {
+            if (mightContain(fingerprint) && tableContains(fingerprint)) {
+                return false;
+            }
+            putBloom(fingerprint);
+            if ((size + 1) * 4L > table.length * 3L) {
+                resize();
+            }
+            insert(table, fingerprint);
+            size++;
+            return true;
+        }
+
+        synchronized boolean contains(long fingerprint) {
+            return mightContain(fingerprint) && tableContains(fingerprint);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private boolean mightContain(long fingerprint) {
+            // Double hashing, the two halves of the fingerprint give the k bit positions
+            long h1 = fingerprint & 0xffffffffL;
+            long h2 = fingerprint >>> 32;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bloomBits);
+                if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void putBloom(long fingerprint) {
+            long h1 = fingerprint & 0xffffffffL;
+            long h2 = fingerprint >>> 32;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bloomBits);
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        private boolean tableContains(long fingerprint) {
+            int mask = table.length - 1;
+            for (int slot = (int) fingerprint & mask; ; slot = (slot + 1) & mask) {
+                long entry = table[slot];
+                if (entry == 0) {
+                    return false;
+                }
+                if (entry == fingerprint) {
+                    return true;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] resized = new long[table.length * 2];
+            for (long entry : table) {
+                if (entry != 0) {
+                    insert(resized, entry);
+                }
+            }
+            table = resized;
+        }
+
+        private static void insert(long[] target, long fingerprint) {
+            int mask = target.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (target[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            target[slot] = fingerprint;
+        }
+    }
+}
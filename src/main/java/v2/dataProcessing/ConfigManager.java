@@ -10,6 +10,8 @@ import java.util.Map;
         private HtmlConfig htmlConfig;
         private TextConfig textConfig;
         private NaceCodeConfig naceCodeConfig;
+        private CrawlerConfig crawlerConfig;
+        private ProfilingConfig profilingConfig;
 
         public ConfigManager() {
             createDefaultConfig();
@@ -66,6 +68,57 @@ import java.util.Map;
 
             // TODO: create dynamic
             this.naceCodeConfig.processingSequence = Arrays.asList("TYPE_1", "TYPE_2");
+
+            this.crawlerConfig = new CrawlerConfig();
+            this.crawlerConfig.fetchMode = "pooled";
+            this.crawlerConfig.fetchThreads = 50;
+            this.crawlerConfig.maxConcurrentVirtualFetches = 1000;
+            this.crawlerConfig.maxConcurrentFetches = 50;
+            this.crawlerConfig.maxConcurrentFetchesPerHost = 2;
+            this.crawlerConfig.minDelayPerHostMillis = 250;
+            this.crawlerConfig.maxPartnersInFlight = 20;
+            this.crawlerConfig.transport = "httpclient";
+            this.crawlerConfig.connectTimeoutMillis = 10000;
+            this.crawlerConfig.maxCrawlDepth = 2;
+            this.crawlerConfig.maxPagesPerSite = 25;
+            this.crawlerConfig.maxBytesPerSite = 20L * 1024 * 1024;
+            this.crawlerConfig.expectedUrlsPerRun = 1_000_000;
+            this.crawlerConfig.useHttpCache = true;
+            this.crawlerConfig.httpCacheDirectory = "data/Output/HttpCache/";
+            this.crawlerConfig.useRobotsTxt = true;
+            this.crawlerConfig.useSitemaps = true;
+            this.crawlerConfig.maxSitemapFetches = 5;
+            this.crawlerConfig.maxSitemapUrls = 50;
+            this.crawlerConfig.dnsNegativeCacheTtlMillis = 10 * 60 * 1000L;
+            this.crawlerConfig.circuitBreakerFailureThreshold = 3;
+            this.crawlerConfig.circuitBreakerOpenMillis = 5 * 60 * 1000L;
+            this.crawlerConfig.initialFetchTimeoutMillis = 10000;
+            this.crawlerConfig.minFetchTimeoutMillis = 2000;
+            this.crawlerConfig.maxFetchTimeoutMillis = 30000;
+            this.crawlerConfig.fetchTimeoutP99Factor = 3.0;
+            this.crawlerConfig.minLatencySamples = 5;
+            this.crawlerConfig.maxFetchRetries = 2;
+            this.crawlerConfig.retryBaseDelayMillis = 500;
+            this.crawlerConfig.retryMaxDelayMillis = 8000;
+            this.crawlerConfig.maxPageBytes = 5 * 1024 * 1024L;
+            this.crawlerConfig.maxResourceBytes = 20 * 1024 * 1024L;
+            this.crawlerConfig.webDriverPoolSize = 2;
+            this.crawlerConfig.warmUpWebDrivers = true;
+            this.crawlerConfig.webDriverMaxPagesPerDriver = 50;
+            this.crawlerConfig.webDriverBorrowTimeoutMillis = 60000;
+            this.crawlerConfig.webDriverPageLoadTimeoutMillis = 30000;
+            this.crawlerConfig.extractionMode = "dom";
+            this.crawlerConfig.useCrawlJournal = true;
+            this.crawlerConfig.crawlJournalPath = "data/Output/CrawlJournal/crawl.journal";
+            this.crawlerConfig.retryFailedPartners = false;
+            this.crawlerConfig.journalSyncIntervalMillis = 200;
+            this.crawlerConfig.journalSyncBatchSize = 512;
+            this.crawlerConfig.crawlStoreDirectory = "data/Output/CrawlStore/";
+            this.crawlerConfig.crawlStoreSegmentBytes = 256 * 1024 * 1024L;
+
+            this.profilingConfig = new ProfilingConfig();
+            this.profilingConfig.recordFlightEvents = false;
+            this.profilingConfig.flightRecordingPath = "data/Output/Profiling/run.jfr";
         }
 
         // Getters for configurations
@@ -81,6 +134,14 @@ import java.util.Map;
             return naceCodeConfig;
         }
 
+        public CrawlerConfig getCrawlerConfig() {
+            return crawlerConfig;
+        }
+
+        public ProfilingConfig getProfilingConfig() {
+            return profilingConfig;
+        }
+
         // Inner class for Document configuration
         public class HtmlConfig {
             public List<String> ignoreTags;
@@ -121,4 +182,59 @@ import java.util.Map;
                 return processingSequence;
             }
         }
+
+        // Inner class for Crawler configuration
+        public class CrawlerConfig {
+            public String fetchMode;                 // "pooled" or "virtual"
+            public int fetchThreads;                 // threads executing fetches in pooled mode
+            public int maxConcurrentFetches;         // global in-flight cap over all hosts in pooled mode
+            public int maxConcurrentVirtualFetches;  // global in-flight cap over all hosts in virtual mode
+            public int maxConcurrentFetchesPerHost;  // in-flight cap for a single host
+            public long minDelayPerHostMillis;       // minimum gap between two fetch starts on one host
+            public int maxPartnersInFlight;          // business partner websites crawled concurrently
+            public String transport;                 // "httpclient" (pooled keep-alive connections) or "jsoup"
+            public int connectTimeoutMillis;         // connect timeout of the httpclient transport
+            public int maxCrawlDepth;                // clicks followed from the homepage, 1 = only its direct links
+            public int maxPagesPerSite;              // pages fetched per site including the homepage
+            public long maxBytesPerSite;             // body bytes fetched per site
+            public long expectedUrlsPerRun;          // sizes the run-wide URL seen-set
+            public boolean useHttpCache;             // revalidate re-crawled pages with ETag / Last-Modified
+            public String httpCacheDirectory;        // validators and bodies of cached pages
+            public boolean useRobotsTxt;             // never queue paths disallowed by robots.txt
+            public boolean useSitemaps;              // add keyword pages listed in the sitemaps to the crawl
+            public int maxSitemapFetches;            // sitemap and sitemap index files read per site
+            public int maxSitemapUrls;               // keyword pages taken from the sitemaps per site
+            public long dnsNegativeCacheTtlMillis;   // how long hosts that did not resolve fail at once
+            public int circuitBreakerFailureThreshold; // consecutive connection failures that open a host's breaker
+            public long circuitBreakerOpenMillis;    // how long an open breaker rejects fetches before a probe
+            public int initialFetchTimeoutMillis;    // timeout for hosts with too few recorded fetches
+            public int minFetchTimeoutMillis;        // lower bound of the latency-derived timeout
+            public int maxFetchTimeoutMillis;        // global cap of the latency-derived timeout
+            public double fetchTimeoutP99Factor;     // timeout = host's p99 latency * factor
+            public int minLatencySamples;            // fetches recorded before a host's timeout adapts
+            public int maxFetchRetries;              // retries of timeouts, resets and 429/502/503/504
+            public long retryBaseDelayMillis;        // backoff before the first retry, doubled per retry
+            public long retryMaxDelayMillis;         // cap of the backoff between two retries
+            public long maxPageBytes;                // decoded body cap of an HTML page, larger pages are aborted
+            public long maxResourceBytes;            // decoded body cap of robots.txt and sitemaps
+            public int webDriverPoolSize;            // headless browsers for the Selenium fallback
+            public boolean warmUpWebDrivers;         // start the browsers when the crawler is created
+            public int webDriverMaxPagesPerDriver;   // pages after which a browser is replaced
+            public long webDriverBorrowTimeoutMillis; // wait for a free browser before the fallback gives up
+            public long webDriverPageLoadTimeoutMillis; // page load timeout of a browser
+            public String extractionMode;            // "dom" (full Jsoup parse) or "streaming" (links and paragraphs only)
+            public boolean useCrawlJournal;          // resume an interrupted crawl run where it stopped
+            public String crawlJournalPath;          // append-only journal of partner and page states
+            public boolean retryFailedPartners;      // crawl partners that failed in the interrupted run again
+            public long journalSyncIntervalMillis;   // max time journal records wait for an fsync
+            public int journalSyncBatchSize;         // journal records written before an early fsync
+            public String crawlStoreDirectory;       // segments and index of the crawled pages of all partners
+            public long crawlStoreSegmentBytes;      // size after which the crawl store starts a new segment
+        }
+
+        // Inner class for profiling configuration
+        public class ProfilingConfig {
+            public boolean recordFlightEvents;       // record fetch, parse, processing and prediction events with JFR
+            public String flightRecordingPath;       // .jfr file the recording is written to at the end of the run
+        }
     }
@@ -0,0 +1,207 @@
+package v2.dataProcessing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * The Dun &amp; Bradstreet industry codes of the business partners by partner key, read once per file and shared by
+ * every {@link v2.Objects.BusinessPartner}. Codes are stored without the dot, e.g. "6020" for "60.20".
+ * <p>
+ * The JSON file is read with the Jackson streaming API, only the key and the code list of every partner are kept.
+ * The result is written next to the file as a binary sidecar ({@code <file>.idx}), which is read instead of the JSON
+ * as long as the size and modification time of the JSON file are unchanged.
+ */
+public class DunsAndBradstreetIndex {
+
+    private static final int SIDECAR_MAGIC = 0x44424931; // "DBI1"
+    private static final String SIDECAR_SUFFIX = ".idx";
+    private static final String[] NO_CODES = new String[0];
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final ConcurrentMap<String, DunsAndBradstreetIndex> indexesByPath = new ConcurrentHashMap<>();
+
+    private final Map<String, String[]> codesByKey;
+
+    private DunsAndBradstreetIndex(Map<String, String[]> codesByKey) {
+        this.codesByKey = codesByKey;
+    }
+
+    /**
+     * Returns the index of a file, loading it on the first call for the file.
+     *
+     * @param filePath The path to the JSON file containing the Dun &amp; Bradstreet codes.
+     * @return The index, empty if the file cannot be read.
+     */
+    public static DunsAndBradstreetIndex forFile(String filePath) {
+        return indexesByPath.computeIfAbsent(filePath, DunsAndBradstreetIndex::load);
+    }
+
+    /**
+     * Loads the index of a file from its sidecar, or from the file itself if the sidecar is missing or outdated.
+     * A sidecar is written after the file was read.
+     *
+     * @param filePath The path to the JSON file containing the Dun &amp; Bradstreet codes.
+     * @return The index, empty if the file cannot be read.
+     */
+    public static DunsAndBradstreetIndex load(String filePath) {
+        Path jsonPath = Paths.get(filePath);
+        Path sidecarPath = Paths.get(filePath + SIDECAR_SUFFIX);
+        long size;
+        long modified;
+        try {
+            size = Files.size(jsonPath);
+            modified = Files.getLastModifiedTime(jsonPath).toMillis();
+        } catch (IOException e) {
+            System.err.println("No Dun & Bradstreet codes at " + filePath + ": " + e.getMessage());
+            return new DunsAndBradstreetIndex(new HashMap<>());
+        }
+
+        Map<String, String[]> codesByKey = readSidecar(sidecarPath, size, modified);
+        if (codesByKey != null) {
+            return new DunsAndBradstreetIndex(codesByKey);
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(jsonPath))) {
+            codesByKey = readJson(in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new DunsAndBradstreetIndex(new HashMap<>());
+        }
+        writeSidecar(sidecarPath, size, modified, codesByKey);
+        return new DunsAndBradstreetIndex(codesByKey);
+    }
+
+    /**
+     * Reads the key and the code list of every partner of the JSON array, other fields are skipped. The first
+     * entry of a key with a code list wins.
+     */
+    private static Map<String, String[]> readJson(InputStream in) throws IOException {
+        Map<String, String[]> codesByKey = new HashMap<>();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array of business partners");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String key = null;
+                String[] codes = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("key".equals(field)) {
+                        key = parser.getValueAsString();
+                    } else if ("dunsIndustryCodeList".equals(field) && value == JsonToken.START_ARRAY) {
+                        List<String> list = new ArrayList<>();
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            String code = parser.getValueAsString();
+                            if (code != null) {
+                                list.add(code.replace(".", ""));
+                            }
+                        }
+                        codes = list.toArray(NO_CODES);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (key != null && codes != null) {
+                    codesByKey.putIfAbsent(key, codes);
+                }
+            }
+        }
+        return codesByKey;
+    }
+
+    /**
+     * Reads the sidecar if it was written for a JSON file of the given size and modification time.
+     *
+     * @return The codes by key, or null if there is no valid sidecar.
+     */
+    private static Map<String, String[]> readSidecar(Path sidecarPath, long size, long modified) {
+        if (!Files.exists(sidecarPath)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecarPath)))) {
+            if (in.readInt() != SIDECAR_MAGIC || in.readLong() != size || in.readLong() != modified) {
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, String[]> codesByKey = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                String[] codes = new String[in.readInt()];
+                for (int j = 0; j < codes.length; j++) {
+                    codes[j] = in.readUTF();
+                }
+                codesByKey.put(key, codes);
+            }
+            return codesByKey;
+        } catch (IOException e) {
+            return null; // Torn or foreign file, the JSON is read again
+        }
+    }
+
+    /**
+     * Writes the sidecar to a temporary file first, so a reader never sees a partly written one. A sidecar that
+     * cannot be written only costs the JSON parse on the next start.
+     */
+    private static void writeSidecar(Path sidecarPath, long size, long modified, Map<String, String[]> codesByKey) {
+        Path tempPath = Paths.get(sidecarPath + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(SIDECAR_MAGIC);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.writeInt(codesByKey.size());
+                for (Map.Entry<String, String[]> entry : codesByKey.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (String code : entry.getValue()) {
+                        out.writeUTF(code);
+                    }
+                }
+            }
+            Files.move(tempPath, sidecarPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write the Dun & Bradstreet index " + sidecarPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the codes of a business partner without the dot.
+     *
+     * @param businessPartnerKey The key of the business partner.
+     * @return A copy of the codes, empty if the partner has none.
+     */
+    public String[] getCodes(String businessPartnerKey) {
+        String[] codes = businessPartnerKey == null ? null : codesByKey.get(businessPartnerKey);
+        return codes == null ? new String[0] : codes.clone();
+    }
+
+    /**
+     * Returns whether the file holds a code list for a business partner, which may be empty.
+     *
+     * @param businessPartnerKey The key of the business partner.
+     */
+    public boolean containsPartner(String businessPartnerKey) {
+        return businessPartnerKey != null && codesByKey.containsKey(businessPartnerKey);
+    }
+
+    public int size() {
+        return codesByKey.size();
+    }
+}
@@ -1,96 +1,154 @@
 package v2.dataProcessing;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Entities;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import v2.Objects.CrawledPage;
+import v2.Objects.StoredPage;
 
+/**
+ * Reads the crawled pages that earlier versions saved as JSON per business partner, with the Jackson streaming API.
+ * Pages are now kept in the crawl store, these files are only read for partners not crawled since.
+ */
 public class FileManager {
 
-    private static final Gson gson = new Gson();
+    private static final JsonFactory jsonFactory = new JsonFactory();
 
-    public static void saveDocumentsToFile(List<Document> crawledData, String path) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
-            for (Document doc : crawledData) {
-                if (doc != null) {
-                    // Serialize each document to JSON including metadata
-                    String json = serializeDocumentToJson(doc);
-                    writer.write(json);
-                    writer.newLine();
-                }
+    /**
+     * Reads the URLs of the pages saved in a file. Pages saved with their response body are read with their URL,
+     * lines of the older format holding the serialized HTML of a document are only converted when they are loaded,
+     * their HTML is stored as the body as it is and their links and paragraphs are extracted without building a DOM.
+     *
+     * @param path The file to read.
+     * @return The pages of the file, empty if the file does not exist.
+     */
+    public static List<StoredPage> loadStoredPagesFromFile(String path) {
+        List<StoredPage> pages = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path, StandardCharsets.UTF_8));
+             JsonParser parser = jsonFactory.createParser(reader)) {
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                pages.add(readPage(parser));
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            System.out.println("No Crawled data for:" + path);
         }
+        return pages;
     }
 
-    public static List<Document> loadDocumentsFromFile(String path) {
-        List<Document> documents = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Deserialize each line as a separate document
-                Document doc = deserializeJsonToDocument(line);
-                if (doc != null) {
-                    documents.add(doc);
-                }
+    private static StoredPage readPage(JsonParser parser) throws IOException {
+        String url = null;
+        int statusCode = 200;
+        long fetchedAt = 0;
+        long fetchMillis = 0;
+        String route = CrawledPage.ROUTE_HTTP;
+        String charset = null;
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        int bodyLength = 0;
+        String contentHash = null;
+        byte[] compressedBody = null;
+        List<String> links = new ArrayList<>();
+        List<String> paragraphs = new ArrayList<>();
+        String html = null; // Older format: the serialized HTML of a document and its base URI
+        String baseUri = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "url":
+                    url = parser.getValueAsString();
+                    break;
+                case "statusCode":
+                    statusCode = parser.getValueAsInt();
+                    break;
+                case "fetchedAt":
+                    fetchedAt = parser.getValueAsLong();
+                    break;
+                case "fetchMillis":
+                    fetchMillis = parser.getValueAsLong();
+                    break;
+                case "route":
+                    route = parser.getValueAsString();
+                    break;
+                case "charset":
+                    charset = parser.getValueAsString();
+                    break;
+                case "headers":
+                    if (value == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.getCurrentName();
+                            parser.nextToken();
+                            headers.put(name, readStrings(parser));
+                        }
+                    }
+                    break;
+                case "bodyLength":
+                    bodyLength = parser.getValueAsInt();
+                    break;
+                case "contentHash":
+                    contentHash = parser.getValueAsString();
+                    break;
+                case "compressedBody":
+                    compressedBody = value == JsonToken.VALUE_NULL ? null : parser.getBinaryValue();
+                    break;
+                case "links":
+                    links = readStrings(parser);
+                    break;
+                case "paragraphs":
+                    paragraphs = readStrings(parser);
+                    break;
+                case "html":
+                    html = parser.getValueAsString();
+                    break;
+                case "baseUri":
+                    baseUri = parser.getValueAsString();
+                    break;
+                default:
+                    parser.skipChildren();
             }
-        } catch (IOException e) {
-            System.out.println("No Crawled data for:" + path);
         }
-        return documents;
-    }
 
-    public static String serializeDocumentToJson(Document doc) {
-        JsonObject jsonDoc = new JsonObject();
-        jsonDoc.addProperty("html", doc.html());
-        jsonDoc.addProperty("baseUri", doc.baseUri());
-        jsonDoc.addProperty("charset", doc.outputSettings().charset().name());
-        jsonDoc.addProperty("escapeMode", doc.outputSettings().escapeMode().name());
-        return gson.toJson(jsonDoc);
+        if (html != null) {
+            String legacyHtml = html;
+            String legacyBaseUri = baseUri;
+            return new StoredPage(baseUri, () -> fromLegacyHtml(legacyHtml, legacyBaseUri));
+        }
+        if (compressedBody == null) {
+            throw new IOException("No body stored for " + url);
+        }
+        return StoredPage.of(CrawledPage.fromCompressedBody(url, statusCode, fetchedAt, fetchMillis, route,
+                compressedBody, bodyLength, contentHash, charset, headers, links, paragraphs));
     }
 
-    public static Document deserializeJsonToDocument(String json) {
-        JsonObject jsonDoc = gson.fromJson(json, JsonObject.class);
-        Document doc = Jsoup.parse(jsonDoc.get("html").getAsString());
-        doc.setBaseUri(jsonDoc.get("baseUri").getAsString());
-        doc.outputSettings().charset(jsonDoc.get("charset").getAsString());
-        doc.outputSettings().escapeMode(Entities.EscapeMode.valueOf(jsonDoc.get("escapeMode").getAsString()));
-        return doc;
+    private static CrawledPage fromLegacyHtml(String html, String baseUri) throws IOException {
+        byte[] body = html.getBytes(StandardCharsets.UTF_8);
+        PageExtract pageExtract = StreamingHtmlExtractor.extract(body, StandardCharsets.UTF_8.name(), baseUri);
+        return new CrawledPage(baseUri, 200, 0, 0, CrawledPage.ROUTE_HTTP, body, StandardCharsets.UTF_8.name(),
+                pageExtract.getLinks(), pageExtract.getParagraphs());
     }
 
-    public static void saveHtmlFromDocsToJson(List<Document> documents, String jsonFilePath) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(jsonFilePath))) {
-            JsonObject json = new JsonObject();
-            JsonArray documentArray = new JsonArray();
-
-            // Iterate through documents and add them to the JSON array
-            for (Document doc : documents) {
-                if (doc != null) {
-                    JsonObject documentJson = new JsonObject();
-                    documentJson.addProperty("url", doc.baseUri());
-                    documentJson.addProperty("html", doc.html());
-                    documentArray.add(documentJson);
-                }
-            }
-
-            json.add("documents", documentArray);
-
-            // Write the JSON object to the file
-            writer.write(json.toString());
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Reads an array of strings, the parser is positioned on its start. Any other value is skipped.
+     */
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return values;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
         }
+        return values;
     }
 }
@@ -1,5 +1,7 @@
 package v2.dataProcessing;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -8,9 +10,16 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
+import v2.Objects.CrawledPage;
+import v2.Objects.StoredPage;
+import v2.Profiling.ProcessingStageEvent;
+
+/**
+ * Orders, limits and filters the crawled pages of a business partner before their texts are processed.
+ * All steps except the tag filter only look at the page URL, so they run on {@link StoredPage}s before a page is
+ * read from storage. The tag filter reads and parses the pages still left, the pages kept are read at the end.
+ */
 public class HtmlProcessor {
 
     private ConfigManager.HtmlConfig htmlConfig;
@@ -19,123 +28,181 @@ public class HtmlProcessor {
         this.htmlConfig = htmlConfig;
     }
 
-    public List<Document> processHtml(List<Document> documents) {
+    /**
+     * Runs the processing sequence on pages that are not read yet and reads the pages that are kept.
+     * A page that cannot be read is dropped.
+     *
+     * @param pages The stored pages of a business partner.
+     * @return The kept pages in their final order.
+     */
+    public List<CrawledPage> processStoredPages(List<StoredPage> pages) {
         for (String processingType : htmlConfig.getProcessingSequence()) {
+            ProcessingStageEvent event = new ProcessingStageEvent();
+            event.begin();
+            int inputPages = pages.size();
             switch (processingType) {
                 case "sortPriority":
-                    documents = sortDocumentsByPriority(documents);
+                    pages = sortDocumentsByPriority(pages);
                     break;
                 case "filterDepth":
-                    documents = filterByDepthPriority(documents);
+                    pages = filterByDepthPriority(pages);
                     break;
                 case "limitDocuments":
-                    documents = limitNumberOfDocuments(documents, htmlConfig.maxSubPages);
+                    pages = limitNumberOfDocuments(pages, htmlConfig.maxSubPages);
                     break;
                 case "filterMinimumPriority":
-                    documents = filterByMinimumPriority(documents, htmlConfig.minPriorityThreshold);
+                    pages = filterByMinimumPriority(pages, htmlConfig.minPriorityThreshold);
                     break;
                 case "filterIgnoredTags":
-                    documents = filterIgnoredTags(documents);
+                    pages = filterIgnoredTags(pages);
                     break;
                 case "rankSubPages":
-                    documents = rankSubPages(documents);
+                    pages = rankSubPages(pages);
                     break;
                 default:
             }
+            event.commitStage("HtmlProcessor", processingType, inputPages, pages.size());
+        }
+        List<CrawledPage> loadedPages = new ArrayList<>(pages.size());
+        for (StoredPage page : pages) {
+            CrawledPage loadedPage = load(page);
+            if (loadedPage != null) {
+                loadedPages.add(loadedPage);
+            }
+        }
+        return loadedPages;
+    }
+
+    private static CrawledPage load(StoredPage page) {
+        try {
+            return page.load();
+        } catch (IOException e) {
+            System.err.println("Could not read the crawled page " + page.getUrl() + ": " + e.getMessage());
+            return null;
         }
-        return documents;
     }
 
-    public List<Document> sortDocumentsByPriority(List<Document> documents) {
+    public List<StoredPage> sortDocumentsByPriority(List<StoredPage> pages) {
         Map<String, Integer> urlPriorityKeywords = KeywordManager.getPriorityKeywords("URLPriority");
-        return documents.stream()
-                .sorted(Comparator.comparing(doc -> calculateKeywordPriority(doc, urlPriorityKeywords), Comparator.reverseOrder()))
+        return pages.stream()
+                .sorted(Comparator.comparing(page -> calculateKeywordPriority(page, urlPriorityKeywords), Comparator.reverseOrder()))
                 .collect(Collectors.toList());
     }
 
-    private int calculateKeywordPriority(Document document, Map<String, Integer> urlPriorityKeywords) {
-        String url = document.location();
+    private int calculateKeywordPriority(StoredPage page, Map<String, Integer> urlPriorityKeywords) {
+        String url = page.getUrl();
         return urlPriorityKeywords.entrySet().stream()
                 .filter(entry -> url.contains(entry.getKey()))
                 .mapToInt(Map.Entry::getValue)
                 .sum();
     }
 
-    public List<Document> filterByDepthPriority(List<Document> documents) {
+    public List<StoredPage> filterByDepthPriority(List<StoredPage> pages) {
         if (htmlConfig.shouldConsiderUrlDepth) {
-            return documents.stream()
+            return pages.stream()
                     .sorted(Comparator.comparing(this::calculateDepthPriority, Comparator.reverseOrder()))
                     .collect(Collectors.toList());
         }
-        return documents;
+        return pages;
     }
 
-    private int calculateDepthPriority(Document document) {
-        String url = document.location();
+    private int calculateDepthPriority(StoredPage page) {
+        String url = page.getUrl();
         return (int) url.chars().filter(ch -> ch == '/').count();
     }
 
-    public List<Document> limitNumberOfDocuments(List<Document> documents, int maxCount) {
-        return documents.stream().limit(maxCount).collect(Collectors.toList());
+    public List<StoredPage> limitNumberOfDocuments(List<StoredPage> pages, int maxCount) {
+        return pages.stream().limit(maxCount).collect(Collectors.toList());
     }
 
-    public List<Document> filterByMinimumPriority(List<Document> documents, int minPriority) {
+    public List<StoredPage> filterByMinimumPriority(List<StoredPage> pages, int minPriority) {
         Map<String, Integer> urlPriorityKeywords = KeywordManager.getPriorityKeywords(KeywordManager.URL_PRIORITY);
-        return documents.stream()
-            .filter(doc -> calculateKeywordPriority(doc, urlPriorityKeywords) >= minPriority)
+        return pages.stream()
+            .filter(page -> calculateKeywordPriority(page, urlPriorityKeywords) >= minPriority)
             .collect(Collectors.toList());
     }
 
-    public List<Document> filterIgnoredTags(List<Document> documents) {
+    public List<StoredPage> filterIgnoredTags(List<StoredPage> pages) {
         if (htmlConfig.ignoreTags == null || htmlConfig.ignoreTags.isEmpty()) {
-            return documents;
+            return pages;
         }
-        return documents.stream()
-            .filter(doc -> htmlConfig.ignoreTags.stream().noneMatch(tag -> doc.select(tag).isEmpty()))
+        return pages.stream()
+            .filter(page -> {
+                CrawledPage loadedPage = load(page);
+                return loadedPage != null && hasAllIgnoredTags(loadedPage.toDocument());
+            })
             .collect(Collectors.toList());
     }
 
-    public List<Document> rankSubPages(List<Document> documents) {
+    private boolean hasAllIgnoredTags(Document document) {
+        return htmlConfig.ignoreTags.stream().noneMatch(tag -> document.select(tag).isEmpty());
+    }
+
+    public List<StoredPage> rankSubPages(List<StoredPage> pages) {
         if (!htmlConfig.rankSubPages || htmlConfig.rankSubPagesBy == null) {
-            return documents;
+            return pages;
         }
-        return documents.stream()
-            .sorted((doc1, doc2) -> compareSubPageRank(doc1, doc2, htmlConfig.rankSubPagesBy))
+        return pages.stream()
+            .sorted((page1, page2) -> compareSubPageRank(page1, page2, htmlConfig.rankSubPagesBy))
             .collect(Collectors.toList());
     }
 
-    private int compareSubPageRank(Document doc1, Document doc2, Map<Integer, List<String>> rankCriteria) {
+    private int compareSubPageRank(StoredPage page1, StoredPage page2, Map<Integer, List<String>> rankCriteria) {
         int rank1 = rankCriteria.entrySet().stream()
-            .filter(entry -> entry.getValue().stream().anyMatch(keyword -> doc1.location().contains(keyword)))
+            .filter(entry -> entry.getValue().stream().anyMatch(keyword -> page1.getUrl().contains(keyword)))
             .mapToInt(Map.Entry::getKey)
             .max().orElse(Integer.MAX_VALUE);
         int rank2 = rankCriteria.entrySet().stream()
-            .filter(entry -> entry.getValue().stream().anyMatch(keyword -> doc2.location().contains(keyword)))
+            .filter(entry -> entry.getValue().stream().anyMatch(keyword -> page2.getUrl().contains(keyword)))
             .mapToInt(Map.Entry::getKey)
             .max().orElse(Integer.MAX_VALUE);
 
     return Integer.compare(rank1, rank2);
     }
 
-    public static Set<String> getAllLinksWithKeywords(Document document) {
+    /**
+     * Collects the links of a crawled page that contain a crawling keyword and stay below the given site URL.
+     *
+     * @param page        The page to collect the links from.
+     * @param siteBaseUrl The URL every collected link has to start with.
+     * @return The unique absolute URLs of the matching links.
+     */
+    public static Set<String> getAllLinksWithKeywords(CrawledPage page, String siteBaseUrl) {
         List<String> keywords = KeywordManager.getSimpleKeywords(KeywordManager.CRAWLING_KEYWORDS);
         Set<String> uniqueLinks = new HashSet<>();
-        String documentBaseUrl = document.baseUri();
-
-        Elements linkElements = document.select("a[href]");
-        for (Element link : linkElements) {
-            String url = link.attr("abs:href"); // 'abs:href' gives the absolute URL
-
-            // Check if the URL is a standard web page (not a file like PDF, image, etc.)
-            if (!url.matches(".*\\.(pdf|jpg|jpeg|png|gif|svg|doc|docx|ppt|pptx|xls|xlsx)$")) {
-                if (containsKeyword(url, keywords) && url.startsWith(documentBaseUrl)) {
-                    uniqueLinks.add(url);
-                }
+        for (String url : page.getLinks()) {
+            if (isCrawlableLink(url, siteBaseUrl, keywords)) {
+                uniqueLinks.add(url);
             }
         }
         return uniqueLinks;
     }
 
+    /**
+     * Checks whether a URL is a web page below the site URL that contains one of the crawling keywords.
+     * Also used for the page URLs found in sitemaps.
+     */
+    public static boolean isCrawlableLink(String url, String siteBaseUrl, List<String> keywords) {
+        // Check if the URL is a standard web page (not a file like PDF, image, etc.)
+        if (url.matches(".*\\.(pdf|jpg|jpeg|png|gif|svg|doc|docx|ppt|pptx|xls|xlsx)$")) {
+            return false;
+        }
+        return containsKeyword(url, keywords) && url.startsWith(siteBaseUrl);
+    }
+
+    /**
+     * Returns the best URL priority of the given URL, 1 being the highest priority.
+     * URLs without any priority keyword get {@link Integer#MAX_VALUE}.
+     */
+    public static int getUrlPriority(String url) {
+        Map<String, Integer> urlPriorityKeywords = KeywordManager.getPriorityKeywords(KeywordManager.URL_PRIORITY);
+        return urlPriorityKeywords.entrySet().stream()
+                .filter(entry -> url.contains(entry.getKey()))
+                .mapToInt(Map.Entry::getValue)
+                .min()
+                .orElse(Integer.MAX_VALUE);
+    }
+
     private static boolean containsKeyword(String url, List<String> keywords) {
         return keywords.stream().anyMatch(url::contains);
     }
@@ -11,12 +11,12 @@ public class KeywordManager {
     public static final String CRAWLING_KEYWORDS = "crawlingKeywords";
     public static final String URL_PRIORITY = "URLPriority";
 
-    private static Map<String, Map<String, Integer>> priorityKeywordLists;
-    private static Map<String, List<String>> simpleKeywordLists;
+    private static final Map<String, Map<String, Integer>> priorityKeywordLists = new HashMap<>();
+    private static final Map<String, List<String>> simpleKeywordLists = new HashMap<>();
 
-    public KeywordManager() {
-        KeywordManager.priorityKeywordLists = new HashMap<>();
-        KeywordManager.simpleKeywordLists = new HashMap<>();
+    // The default lists are filled once per JVM and available without creating a KeywordManager, creating one
+    // does not reset keywords added since
+    static {
         initUrlPriorityKeywords();
         initCrawlingKeywords();
     }
@@ -65,7 +65,7 @@ public class KeywordManager {
         return simpleKeywordLists.containsKey(listName) && simpleKeywordLists.get(listName).contains(keyword);
     }
 
-    private void initUrlPriorityKeywords() {
+    private static void initUrlPriorityKeywords() {
         Map<String, Integer> priorityMap = new HashMap<>();
 
         // Priority 1 Keywords
@@ -109,7 +109,7 @@ public class KeywordManager {
         addPriorityKeywordList(URL_PRIORITY, priorityMap);
     }
 
-    private void initCrawlingKeywords() {
+    private static void initCrawlingKeywords() {
         String listName = CRAWLING_KEYWORDS;
         ArrayList<String> crawlingKeywords = new ArrayList<String>(
             Arrays.asList(
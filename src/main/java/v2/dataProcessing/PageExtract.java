@@ -0,0 +1,123 @@
+package v2.dataProcessing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+/**
+ * The parts of a page the crawler and the text processing use, extracted by the {@link StreamingHtmlExtractor}
+ * without building a DOM or taken from a parsed document: the links, the paragraph texts and a few signals
+ * telling whether the page needs JavaScript to show its content.
+ */
+public class PageExtract {
+    private static final String SPA_ROOT_SELECTOR = "#root, #app, #__next, #__nuxt, app-root, [ng-app], [data-reactroot]";
+
+    private final String url;
+    private final List<String> links;
+    private final List<String> paragraphs;
+    private final int visibleTextLength;
+    private final int noscriptTextLength;
+    private final boolean spaRoot;
+
+    /**
+     * @param url                The URL of the page.
+     * @param links              The absolute URLs of the {@code <a href>} links, in document order.
+     * @param paragraphs         The whitespace-normalized texts of the {@code <p>} elements, in document order.
+     * @param visibleTextLength  The number of non-whitespace characters of text outside script and style.
+     * @param noscriptTextLength The part of the visible text inside {@code <noscript>}.
+     * @param spaRoot            Whether the page has the root element of a single page application.
+     */
+    public PageExtract(String url, List<String> links, List<String> paragraphs, int visibleTextLength,
+                       int noscriptTextLength, boolean spaRoot) {
+        this.url = url;
+        this.links = links;
+        this.paragraphs = paragraphs;
+        this.visibleTextLength = visibleTextLength;
+        this.noscriptTextLength = noscriptTextLength;
+        this.spaRoot = spaRoot;
+    }
+
+    /**
+     * Extracts the same parts from a parsed document. The links are the {@code abs:href} values of its
+     * {@code <a href>} elements, or the plain href of a document without base URI, the paragraphs the texts of
+     * all its {@code <p>} elements.
+     *
+     * @param document The parsed page, its location is the page URL.
+     */
+    public static PageExtract fromDocument(Document document) {
+        List<String> links = new ArrayList<>();
+        for (Element link : document.select("a[href]")) {
+            String url = link.attr("abs:href");
+            if (url.isEmpty()) {
+                url = link.attr("href");
+            }
+            if (!url.isEmpty()) {
+                links.add(url);
+            }
+        }
+        List<String> paragraphs = new ArrayList<>();
+        for (Element paragraph : document.select("p")) {
+            paragraphs.add(paragraph.text());
+        }
+        // Documents parsed with the XML parser have no implicit body
+        Element body = document.selectFirst("body");
+        Element content = body != null ? body : document;
+        return new PageExtract(document.location(), links, paragraphs, visibleLength(content.text()),
+                visibleLength(content.select("noscript").text()), content.selectFirst(SPA_ROOT_SELECTOR) != null);
+    }
+
+    /**
+     * Number of non-whitespace characters, the measure of visible text used for documents and extracts alike.
+     */
+    private static int visibleLength(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public List<String> getLinks() {
+        return links;
+    }
+
+    public List<String> getParagraphs() {
+        return paragraphs;
+    }
+
+    public int getVisibleTextLength() {
+        return visibleTextLength;
+    }
+
+    public int getNoscriptTextLength() {
+        return noscriptTextLength;
+    }
+
+    public boolean hasSpaRoot() {
+        return spaRoot;
+    }
+
+    /**
+     * Builds a minimal document holding only the paragraphs and links, for code that works on documents.
+     * Its location is the page URL, {@code abs:href} of its links returns the extracted URLs.
+     */
+    public Document toDocument() {
+        Document document = Document.createShell(url);
+        Element body = document.body();
+        for (String paragraph : paragraphs) {
+            body.appendElement("p").text(paragraph);
+        }
+        for (String link : links) {
+            body.appendElement("a").attr("href", link);
+        }
+        return document;
+    }
+}
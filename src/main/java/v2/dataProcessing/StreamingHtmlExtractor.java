@@ -0,0 +1,422 @@
+package v2.dataProcessing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.Entities;
+
+/**
+ * Extracts links and paragraph texts from HTML in a single pass over the characters, without building a DOM.
+ * The input is fed in chunks and emitted as soon as a tag closes, the extractor only holds the tag and the
+ * paragraph it is currently in. The crawler feeds it the buffered response body, which the crawl store and the
+ * HTTP cache keep anyway, so what it saves is the DOM, not the body buffer. Links are resolved like jsoup's {@code abs:href}, entities are decoded
+ * with jsoup's entity table, so the results match {@code select("a[href]")} and {@code select("p")} on well-formed
+ * pages. A paragraph is closed by {@code </p>}, by the start of another block element or by the end of an
+ * enclosing block, as an HTML parser does.
+ */
+public class StreamingHtmlExtractor {
+
+    private static final int MAX_TAG_LENGTH = 16 * 1024; // Longer tags are truncated, the rest of the tag is skipped
+    private static final int CHARSET_SNIFF_BYTES = 1024;
+    private static final Pattern ATTRIBUTE = Pattern.compile(
+            "([^\\s=/>\"']+)(?:\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+)))?");
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta[^>]+charset\\s*=\\s*[\"']?\\s*([a-zA-Z0-9_:.-]+)", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "title", "textarea", "template");
+    private static final Set<String> SPA_ROOT_IDS = Set.of("root", "app", "__next", "__nuxt");
+    // Elements whose start or end closes an open paragraph
+    private static final Set<String> BLOCK_TAGS = Set.of("address", "article", "aside", "blockquote", "body",
+            "details", "div", "dl", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3", "h4",
+            "h5", "h6", "header", "hr", "html", "li", "main", "menu", "nav", "ol", "p", "pre", "section", "table",
+            "td", "th", "tr", "ul");
+
+    private final String url;
+    private String baseUri;
+    private URL baseUrl; // Parsed once, null if the base URI is not a valid URL
+    private final List<String> links = new ArrayList<>();
+    private final List<String> paragraphs = new ArrayList<>();
+    private int visibleTextLength;
+    private int noscriptTextLength;
+    private boolean spaRoot;
+
+    private boolean inTag;
+    private boolean inComment;
+    private char quote; // Quote character of the attribute value the tag is in, 0 outside a value
+    private int dashes; // Consecutive '-' at the end of a comment
+    private final StringBuilder tag = new StringBuilder();
+    private String rawTextEnd; // "</script" etc. while inside a raw text element
+    private int rawTextMatched;
+    private int noscriptDepth;
+    private StringBuilder paragraph; // Raw text of the open paragraph, null outside a paragraph
+
+    /**
+     * @param url The URL of the page, used to resolve relative links.
+     */
+    public StreamingHtmlExtractor(String url) {
+        this.url = url;
+        setBaseUri(url);
+    }
+
+    /**
+     * Extracts a response body, decoded with the given charset or, if none is given, the charset of a
+     * {@code <meta>} tag in the first kilobyte, else UTF-8.
+     *
+     * @param body    The response body.
+     * @param charset The charset of the Content-Type header, or null.
+     * @param url     The URL of the page.
+     * @return The extracted links, paragraphs and signals.
+     */
+    public static PageExtract extract(byte[] body, String charset, String url) throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), detectCharset(body, charset))) {
+            return extract(reader, url);
+        }
+    }
+
+    public static PageExtract extract(Reader reader, String url) throws IOException {
+        StreamingHtmlExtractor extractor = new StreamingHtmlExtractor(url);
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            extractor.feed(buffer, 0, read);
+        }
+        return extractor.finish();
+    }
+
+    /**
+     * Processes the next chunk of the page.
+     */
+    public void feed(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (rawTextEnd != null) {
+                feedRawText(c);
+            } else if (inComment) {
+                feedComment(c);
+            } else if (inTag) {
+                feedTag(c);
+            } else if (c == '<') {
+                inTag = true;
+                tag.setLength(0);
+            } else {
+                feedText(c);
+            }
+        }
+    }
+
+    /**
+     * Closes what is still open and returns the result. The extractor must not be fed afterwards.
+     */
+    public PageExtract finish() {
+        closeParagraph();
+        return new PageExtract(url, links, paragraphs, visibleTextLength, noscriptTextLength, spaRoot);
+    }
+
+    private void feedText(char c) {
+        if (c == '\uFEFF') {
+            return; // Byte order mark
+        }
+        if (paragraph != null) {
+            paragraph.append(c);
+        }
+        if (!Character.isWhitespace(c)) {
+            visibleTextLength++;
+            if (noscriptDepth > 0) {
+                noscriptTextLength++;
+            }
+        }
+    }
+
+    private void feedTag(char c) {
+        if (tag.length() == 0 && !Character.isLetter(c) && c != '/' && c != '!' && c != '?') {
+            inTag = false; // A '<' in text, e.g. "a < b"
+            feedText('<');
+            feedText(c);
+            return;
+        }
+        if (quote != 0) {
+            if (c == quote) {
+                quote = 0;
+            }
+        } else if (c == '"' || c == '\'') {
+            if (tag.length() > 0 && tag.charAt(0) != '/' && tag.charAt(0) != '!') {
+                quote = c; // Only attribute values are quoted
+            }
+        } else if (c == '>') {
+            inTag = false;
+            handleTag();
+            return;
+        }
+        if (tag.length() < MAX_TAG_LENGTH) {
+            tag.append(c);
+        }
+        if (tag.length() == 3 && tag.charAt(0) == '!' && tag.charAt(1) == '-' && tag.charAt(2) == '-') {
+            inTag = false;
+            inComment = true;
+            dashes = 0;
+        }
+    }
+
+    private void feedComment(char c) {
+        if (c == '>' && dashes >= 2) {
+            inComment = false;
+        }
+        dashes = c == '-' ? dashes + 1 : 0;
+    }
+
+    private void feedRawText(char c) {
+        char lower = Character.toLowerCase(c);
+        if (lower == rawTextEnd.charAt(rawTextMatched)) {
+            rawTextMatched++;
+            if (rawTextMatched == rawTextEnd.length()) {
+                // Continue with the end tag as a regular tag
+                tag.setLength(0);
+                tag.append(rawTextEnd, 1, rawTextEnd.length());
+                rawTextEnd = null;
+                inTag = true;
+            }
+        } else {
+            rawTextMatched = lower == '<' ? 1 : 0;
+        }
+    }
+
+    private void handleTag() {
+        if (tag.length() == 0 || tag.charAt(0) == '!' || tag.charAt(0) == '?') {
+            return; // Doctype or processing instruction
+        }
+        boolean endTag = tag.charAt(0) == '/';
+        int nameStart = endTag ? 1 : 0;
+        int nameEnd = nameStart;
+        while (nameEnd < tag.length() && !Character.isWhitespace(tag.charAt(nameEnd)) && tag.charAt(nameEnd) != '/') {
+            nameEnd++;
+        }
+        String name = tag.substring(nameStart, nameEnd).toLowerCase(Locale.ROOT);
+        if (name.isEmpty()) {
+            return;
+        }
+        if (endTag) {
+            handleEndTag(name);
+        } else {
+            handleStartTag(name, tag.substring(nameEnd));
+        }
+    }
+
+    private void handleStartTag(String name, String attributes) {
+        if (BLOCK_TAGS.contains(name)) {
+            closeParagraph();
+        }
+        switch (name) {
+            case "p":
+                paragraph = new StringBuilder();
+                break;
+            case "br":
+                feedText(' ');
+                break;
+            case "noscript":
+                noscriptDepth++;
+                break;
+            case "a":
+                String href = attribute(attributes, "href");
+                if (href != null) {
+                    String absolute = resolve(href.trim());
+                    if (!absolute.isEmpty()) {
+                        links.add(absolute);
+                    }
+                }
+                break;
+            case "base":
+                String baseHref = attribute(attributes, "href");
+                if (baseHref != null && baseUri.equals(url)) {
+                    String absolute = resolve(baseHref.trim());
+                    if (!absolute.isEmpty()) {
+                        setBaseUri(absolute);
+                    }
+                }
+                break;
+            case "app-root":
+                spaRoot = true;
+                break;
+            default:
+        }
+        if (!spaRoot && (attributes.contains("id") || attributes.contains("ng-app"))) {
+            String id = attribute(attributes, "id");
+            spaRoot = (id != null && SPA_ROOT_IDS.contains(id.trim()))
+                    || attributes.contains("ng-app") || attributes.contains("data-reactroot");
+        }
+        if (RAW_TEXT_TAGS.contains(name) && !attributes.trim().endsWith("/")) {
+            rawTextEnd = "</" + name;
+            rawTextMatched = 0;
+        }
+    }
+
+    private void handleEndTag(String name) {
+        if (BLOCK_TAGS.contains(name)) {
+            closeParagraph();
+        } else if (name.equals("noscript") && noscriptDepth > 0) {
+            noscriptDepth--;
+        }
+    }
+
+    private void setBaseUri(String baseUri) {
+        this.baseUri = baseUri;
+        try {
+            this.baseUrl = new URL(baseUri);
+        } catch (MalformedURLException e) {
+            this.baseUrl = null;
+        }
+    }
+
+    /**
+     * Resolves a link against the base URI like jsoup's {@code abs:href}, but against the base URL parsed once
+     * per page instead of once per link. Returns "" for links that cannot be resolved.
+     */
+    private String resolve(String href) {
+        if (baseUrl == null) {
+            return StringUtil.resolve(baseUri, href);
+        }
+        try {
+            String relative = href.startsWith("?") ? baseUrl.getPath() + href : href;
+            return new URL(baseUrl, relative).toExternalForm();
+        } catch (MalformedURLException e) {
+            return "";
+        }
+    }
+
+    private void closeParagraph() {
+        if (paragraph == null) {
+            return;
+        }
+        paragraphs.add(normalizeWhitespace(unescape(paragraph, false)));
+        paragraph = null;
+    }
+
+    /**
+     * Collapses runs of whitespace and non-breaking spaces into one space and trims, like jsoup's {@code text()}.
+     */
+    private static String normalizeWhitespace(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || c == '\u00a0') {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Decodes character references. jsoup's {@code Parser.unescapeEntities} sets up a full tokenizer per call,
+     * which costs more than the whole extraction of a paragraph, so references are decoded here with jsoup's
+     * entity table. Named references without ';' are only decoded in text, as in an HTML parser.
+     */
+    static String unescape(CharSequence text, boolean inAttribute) {
+        int amp = text.toString().indexOf('&');
+        if (amp < 0) {
+            return text.toString();
+        }
+        StringBuilder decoded = new StringBuilder(text.length());
+        decoded.append(text, 0, amp);
+        int i = amp;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c != '&') {
+                decoded.append(c);
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            boolean numeric = end < text.length() && text.charAt(end) == '#';
+            if (numeric) {
+                end++;
+                boolean hex = end < text.length() && (text.charAt(end) == 'x' || text.charAt(end) == 'X');
+                int digitsStart = hex ? end + 1 : end;
+                end = digitsStart;
+                while (end < text.length() && end - digitsStart < 8
+                        && Character.digit(text.charAt(end), hex ? 16 : 10) >= 0) {
+                    end++;
+                }
+                if (end > digitsStart) {
+                    int codePoint = Integer.parseInt(text.subSequence(digitsStart, end).toString(), hex ? 16 : 10);
+                    decoded.appendCodePoint(Character.isValidCodePoint(codePoint) && codePoint != 0 ? codePoint : 0xFFFD);
+                    i = end < text.length() && text.charAt(end) == ';' ? end + 1 : end;
+                    continue;
+                }
+            } else {
+                while (end < text.length() && end - i <= 32 && Character.isLetterOrDigit(text.charAt(end))) {
+                    end++;
+                }
+                String name = text.subSequence(i + 1, end).toString();
+                boolean terminated = end < text.length() && text.charAt(end) == ';';
+                if (terminated && Entities.isNamedEntity(name)) {
+                    decoded.append(Entities.getByName(name));
+                    i = end + 1;
+                    continue;
+                }
+                if (!terminated && !inAttribute && Entities.isBaseNamedEntity(name)) {
+                    decoded.append(Entities.getByName(name));
+                    i = end;
+                    continue;
+                }
+            }
+            decoded.append(c);
+            i++;
+        }
+        return decoded.toString();
+    }
+
+    /**
+     * Returns the decoded value of an attribute, or null if the tag does not have it.
+     */
+    private static String attribute(String attributes, String name) {
+        Matcher matcher = ATTRIBUTE.matcher(attributes);
+        while (matcher.find()) {
+            if (matcher.group(1).equalsIgnoreCase(name)) {
+                String value = matcher.group(2) != null ? matcher.group(2)
+                        : matcher.group(3) != null ? matcher.group(3)
+                        : matcher.group(4) != null ? matcher.group(4) : "";
+                return unescape(value, true);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the charset a response body is decoded with: the declared charset, else the charset of a
+     * {@code <meta>} tag at the start of the body, else UTF-8.
+     *
+     * @param body            The response body.
+     * @param declaredCharset The charset of the Content-Type header, or null.
+     */
+    public static Charset detectCharset(byte[] body, String declaredCharset) {
+        String name = declaredCharset;
+        if (name == null) {
+            String head = new String(body, 0, Math.min(body.length, CHARSET_SNIFF_BYTES), StandardCharsets.ISO_8859_1);
+            Matcher matcher = META_CHARSET.matcher(head);
+            name = matcher.find() ? matcher.group(1) : null;
+        }
+        try {
+            return name != null ? Charset.forName(name) : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
@@ -9,6 +9,9 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import v2.Objects.CrawledPage;
+import v2.Profiling.ProcessingStageEvent;
+
 public class TextProcessor {
     private ConfigManager.TextConfig textConfig;
 
@@ -16,11 +19,18 @@ public class TextProcessor {
         this.textConfig = textConfig;
     }
 
-    public List<String> processTexts(Document document) {
-
-        List<String> text = pTagsToText(document);
+    /**
+     * Processes the paragraphs extracted from a crawled page at fetch time, without parsing the page again.
+     */
+    public List<String> processTexts(CrawledPage page) {
+        return processParagraphs(new ArrayList<>(page.getParagraphs()));
+    }
 
+    private List<String> processParagraphs(List<String> text) {
         for (String processingType : textConfig.getProcessingSequence()) {
+            ProcessingStageEvent event = new ProcessingStageEvent();
+            event.begin();
+            int inputParagraphs = text.size();
             switch (processingType) {
                 case "removeShortParagraphs":
                     text = removeShortParagraphs(text);
@@ -37,6 +47,7 @@ public class TextProcessor {
                 default:
                     throw new IllegalArgumentException("Unknown TextConfig processing type: " + processingType);
             }
+            event.commitStage("TextProcessor", processingType, inputParagraphs, text.size());
         }
         return text;
     }
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.Transport.CachingTransport;
+import v2.crawler.Transport.FetchRequest;
+import v2.crawler.Transport.FetchResponse;
+import v2.crawler.Transport.HttpCache;
+import v2.crawler.Transport.PageTransport;
+
+class CachingTransportTest {
+
+    private static final String URL = "https://a.de/";
+    private static final byte[] BODY = "<html><body><p>Über uns</p></body></html>".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Transport answering with the queued responses in order and keeping the requests it received.
+     */
+    private static class RecordingTransport implements PageTransport {
+        private final List<FetchResponse> responses = new ArrayList<>();
+        private final List<FetchRequest> requests = new ArrayList<>();
+
+        @Override
+        public FetchResponse fetch(FetchRequest request) {
+            requests.add(request);
+            return responses.remove(0);
+        }
+    }
+
+    private static FetchResponse response(int statusCode, byte[] body) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put("ETag", List.of("\"v1\""));
+        headers.put("Last-Modified", List.of("Mon, 05 Oct 2026 10:00:00 GMT"));
+        headers.put("Content-Type", List.of("text/html; charset=UTF-8"));
+        return new FetchResponse(URL, statusCode, headers, body);
+    }
+
+    private static List<Path> cacheFiles(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testStoredValidatorsAreSentAndNotModifiedReturnsCachedBody() throws IOException {
+        Path directory = Files.createTempDirectory("httpcache");
+        RecordingTransport delegate = new RecordingTransport();
+        CachingTransport transport = new CachingTransport(delegate, new HttpCache(directory.toString()));
+
+        delegate.responses.add(response(200, BODY));
+        transport.fetch(new FetchRequest(URL, 1000));
+        assertFalse(delegate.requests.get(0).getHeaders().containsKey("If-None-Match"));
+
+        delegate.responses.add(response(304, new byte[0]));
+        FetchResponse revalidated = transport.fetch(new FetchRequest(URL, 1000));
+
+        Map<String, String> sent = delegate.requests.get(1).getHeaders();
+        assertEquals("\"v1\"", sent.get("If-None-Match"));
+        assertEquals("Mon, 05 Oct 2026 10:00:00 GMT", sent.get("If-Modified-Since"));
+        assertEquals(200, revalidated.getStatusCode());
+        assertArrayEquals(BODY, revalidated.getBody());
+        assertEquals("\"v1\"", revalidated.header("ETag"));
+    }
+
+    @Test
+    void testCorruptOrMissingEntryFallsBackToFullFetch() throws IOException {
+        Path directory = Files.createTempDirectory("httpcache");
+        RecordingTransport delegate = new RecordingTransport();
+        CachingTransport transport = new CachingTransport(delegate, new HttpCache(directory.toString()));
+
+        delegate.responses.add(response(200, BODY));
+        transport.fetch(new FetchRequest(URL, 1000));
+
+        // Torn metadata: the entry is not used and the page is fetched without validators
+        Files.write(cacheFiles(directory, ".json").get(0), "{\"url\":".getBytes(StandardCharsets.UTF_8));
+        delegate.responses.add(response(200, BODY));
+        FetchResponse refetched = transport.fetch(new FetchRequest(URL, 1000));
+        assertTrue(delegate.requests.get(1).getHeaders().isEmpty());
+        assertArrayEquals(BODY, refetched.getBody());
+
+        // The full fetch stored the entry again, without its body it is not used either
+        assertEquals(1, cacheFiles(directory, ".json").size());
+        Files.delete(cacheFiles(directory, ".body").get(0));
+        delegate.responses.add(response(200, BODY));
+        transport.fetch(new FetchRequest(URL, 1000));
+        assertTrue(delegate.requests.get(2).getHeaders().isEmpty());
+    }
+}
@@ -0,0 +1,40 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.Transport.ContentGate;
+import v2.crawler.Transport.FetchRequest;
+import v2.crawler.Transport.RejectedContentException;
+
+class ContentGateTest {
+
+    private static FetchRequest pageRequest() {
+        return new FetchRequest("https://www.example.com/about-us", 10000)
+                .acceptedContentTypes(List.of("text/html", "application/xhtml+xml"))
+                .maxBodyBytes(10);
+    }
+
+    @Test
+    void testContentTypeChecked() {
+        assertDoesNotThrow(() -> ContentGate.checkHeaders(pageRequest(), 200, "text/html; charset=UTF-8", "10"));
+        assertDoesNotThrow(() -> ContentGate.checkHeaders(pageRequest(), 200, null, null));
+        assertDoesNotThrow(() -> ContentGate.checkHeaders(pageRequest(), 404, "application/json", null));
+        assertThrows(RejectedContentException.class,
+                () -> ContentGate.checkHeaders(pageRequest(), 200, "application/pdf", null));
+        assertThrows(RejectedContentException.class,
+                () -> ContentGate.checkHeaders(pageRequest(), 200, "text/html", "11"));
+    }
+
+    @Test
+    void testBodyCapped() throws Exception {
+        byte[] small = "<p>hi</p>".getBytes();
+        assertArrayEquals(small, ContentGate.readBody(pageRequest(), new ByteArrayInputStream(small)));
+        assertThrows(RejectedContentException.class,
+                () -> ContentGate.readBody(pageRequest(), new ByteArrayInputStream(new byte[11])));
+    }
+}
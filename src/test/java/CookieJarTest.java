@@ -0,0 +1,43 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.Transport.CookieJar;
+
+class CookieJarTest {
+
+    private static List<String> cookieHeader(CookieManager cookieManager, String url) throws IOException {
+        return cookieManager.get(URI.create(url), Collections.emptyMap()).getOrDefault("Cookie", Collections.emptyList());
+    }
+
+    @Test
+    void testCookiesAreSharedWithinTheSiteOnly() throws IOException {
+        CookieJar cookieJar = new CookieJar();
+        CookieManager cookieManager = cookieJar.newCookieManager();
+
+        cookieManager.put(URI.create("https://www.example.de/"), Map.of("Set-Cookie", List.of(
+                "consent=yes; Domain=example.de; Path=/",
+                "session=abc; Path=/shop",
+                "tracker=1; Domain=de")));
+
+        assertEquals(List.of("consent=yes"), cookieHeader(cookieManager, "https://shop.example.de/ueber-uns"));
+        assertTrue(cookieHeader(cookieManager, "https://www.example.de/shop/cart").containsAll(List.of("consent=yes", "session=abc")));
+        assertEquals(List.of("consent=yes"), cookieHeader(cookieManager, "https://www.example.de/shopping"));
+        assertTrue(cookieHeader(cookieManager, "https://www.other.de/").isEmpty());
+
+        cookieManager.put(URI.create("https://www.example.de/"), Map.of("Set-Cookie", List.of(
+                "consent=; Domain=example.de; Path=/; Max-Age=0")));
+        assertTrue(cookieHeader(cookieManager, "https://www.example.de/").isEmpty());
+
+        cookieJar.removeSite("https://www.example.de/");
+        assertTrue(cookieJar.getCookies().isEmpty());
+    }
+}
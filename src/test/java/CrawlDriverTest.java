@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import v2.Objects.BusinessPartner;
+import v2.Storage.CrawlStore;
+import v2.crawler.CrawlDriver;
+import v2.crawler.Crawler;
+import v2.crawler.Journal.CrawlJournal;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+class CrawlDriverTest {
+
+    private HttpServer server;
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool(); // Answers requests in parallel
+    private String baseUrl;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            boolean found = !exchange.getRequestURI().getPath().startsWith("/missing");
+            byte[] body = (found ? "<html><body><p>Über uns</p></body></html>" : "Not found")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(found ? 200 : 404, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            running.decrementAndGet();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private static CrawlerConfig crawlerConfig(int maxPartnersInFlight) {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.warmUpWebDrivers = false;
+        crawlerConfig.useRobotsTxt = false;
+        crawlerConfig.useSitemaps = false;
+        crawlerConfig.useHttpCache = false;
+        crawlerConfig.minDelayPerHostMillis = 0;
+        crawlerConfig.maxConcurrentFetchesPerHost = 10;
+        crawlerConfig.maxPartnersInFlight = maxPartnersInFlight;
+        return crawlerConfig;
+    }
+
+    @Test
+    void testPartnersInFlightAreCapped() {
+        CrawlerConfig crawlerConfig = crawlerConfig(2);
+        Crawler crawler = new Crawler(crawlerConfig);
+        List<BusinessPartner> businessPartners = List.of(
+                new BusinessPartner("BP1", baseUrl + "/a/"), new BusinessPartner("BP2", baseUrl + "/b/"),
+                new BusinessPartner("BP3", baseUrl + "/c/"), new BusinessPartner("BP4", baseUrl + "/d/"),
+                new BusinessPartner("BP5", baseUrl + "/e/"));
+        Map<String, Integer> pageCounts = new ConcurrentHashMap<>();
+
+        new CrawlDriver(crawler, crawlerConfig).crawlAll(businessPartners,
+                (businessPartner, pages) -> pageCounts.put(businessPartner.getBusinessPartnerKey(), pages.size()));
+        crawler.shutdown();
+
+        assertEquals(Map.of("BP1", 1, "BP2", 1, "BP3", 1, "BP4", 1, "BP5", 1), pageCounts);
+        assertEquals(2, maxRunning.get()); // Every site is a single page, so one request per partner in flight
+    }
+
+    @Test
+    void testPartnersAreJournaledAsDoneOrFailed() throws IOException {
+        CrawlerConfig crawlerConfig = crawlerConfig(4);
+        Path directory = Files.createTempDirectory("journal");
+        CrawlStore crawlStore = CrawlStore.open(directory.resolve("store").toString(), 1024 * 1024);
+        CrawlJournal crawlJournal = CrawlJournal.open(directory.resolve("crawl.journal").toString(), 10, 2, crawlStore);
+        Crawler crawler = new Crawler(crawlerConfig);
+        List<BusinessPartner> businessPartners = List.of(
+                new BusinessPartner("BP1", baseUrl + "/a/"), new BusinessPartner("BP2", baseUrl + "/a/"),
+                new BusinessPartner("BP3", baseUrl + "/missing/"), new BusinessPartner("BP4", baseUrl + "/b/"));
+        Map<String, Integer> pageCounts = new ConcurrentHashMap<>();
+
+        new CrawlDriver(crawler, crawlerConfig, crawlJournal).crawlAll(businessPartners, (businessPartner, pages) -> {
+            pageCounts.put(businessPartner.getBusinessPartnerKey(), pages.size());
+            if (businessPartner.getBusinessPartnerKey().equals("BP4")) {
+                throw new IllegalStateException("Analysis failed");
+            }
+        });
+        crawler.shutdown();
+
+        assertEquals(Map.of("BP1", 1, "BP2", 1, "BP3", 0, "BP4", 1), pageCounts); // BP2 shares the crawl of BP1
+        assertEquals(CrawlJournal.DONE, crawlJournal.getPartnerState("BP1"));
+        assertEquals(CrawlJournal.DONE, crawlJournal.getPartnerState("BP2"));
+        assertEquals(CrawlJournal.FAILED, crawlJournal.getPartnerState("BP3")); // Nothing crawled
+        assertEquals(CrawlJournal.FAILED, crawlJournal.getPartnerState("BP4")); // The callback threw
+        crawlJournal.close();
+        crawlStore.close();
+    }
+}
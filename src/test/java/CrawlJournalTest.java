@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import v2.Objects.CrawledPage;
+import v2.Storage.CrawlStore;
+import v2.crawler.Journal.CrawlJournal;
+import v2.crawler.Journal.CrawlJournal.SiteJournal;
+
+class CrawlJournalTest {
+
+    private static CrawledPage page(String url) {
+        return new CrawledPage(url, 200, 1L, 20L, CrawledPage.ROUTE_HTTP, "<p>Über uns</p>".getBytes(StandardCharsets.UTF_8),
+                "UTF-8", List.of(), List.of("Über uns"));
+    }
+
+    @Test
+    void testInterruptedRunIsResumed() throws IOException {
+        Path directory = Files.createTempDirectory("journal");
+        String path = directory.resolve("crawl.journal").toString();
+        CrawlStore crawlStore = CrawlStore.open(directory.resolve("store").toString(), 1024 * 1024);
+
+        CrawlJournal journal = CrawlJournal.open(path, 10, 2, crawlStore);
+        assertFalse(journal.isResumed());
+        journal.recordPartner("BP1", "a.de", CrawlJournal.IN_FLIGHT, null);
+        journal.recordPartner("BP1", "a.de", CrawlJournal.DONE, null);
+        journal.recordPartner("BP2", "b.de", CrawlJournal.IN_FLIGHT, null);
+        journal.site("a.de").pageDone("https://a.de/", page("https://a.de/"));
+        SiteJournal siteJournal = journal.site("b.de");
+        siteJournal.pageDone("https://b.de/", page("https://b.de/"));
+        siteJournal.pageFailed("https://b.de/kontakt", "HttpStatusException: HTTP error fetching URL");
+        journal.close(); // The run did not complete
+        crawlStore.close();
+        assertFalse(Files.readString(Path.of(path)).contains("Über uns")); // The content is in the crawl store only
+
+        crawlStore = CrawlStore.open(directory.resolve("store").toString(), 1024 * 1024);
+        journal = CrawlJournal.open(path, 10, 2, crawlStore);
+        assertTrue(journal.isResumed());
+        assertEquals(CrawlJournal.DONE, journal.getPartnerState("BP1"));
+        assertEquals(CrawlJournal.IN_FLIGHT, journal.getPartnerState("BP2"));
+        assertEquals(List.of("Über uns"), journal.site("b.de").getCompletedPage("https://b.de/").getParagraphs());
+        assertNull(journal.site("b.de").getCompletedPage("https://b.de/kontakt")); // Failed pages are fetched again
+        assertNull(journal.site("a.de").getCompletedPage("https://a.de/")); // Compacted, the site is done
+        assertFalse(crawlStore.getPartnerKeys().stream().anyMatch(key -> key.endsWith("a.de")));
+        journal.site("b.de").release();
+        journal.completeRun();
+        journal.close();
+        assertTrue(crawlStore.getPartnerKeys().isEmpty());
+
+        journal = CrawlJournal.open(path, 10, 2, crawlStore);
+        assertFalse(journal.isResumed());
+        assertNull(journal.getPartnerState("BP1"));
+        journal.close();
+        crawlStore.close();
+    }
+}
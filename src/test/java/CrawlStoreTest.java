@@ -0,0 +1,187 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import v2.Objects.CrawledPage;
+import v2.Objects.StoredPage;
+import v2.Storage.CrawlStore;
+
+class CrawlStoreTest {
+
+    private static CrawledPage page(String url, String paragraph) {
+        return new CrawledPage(url, 200, 1L, 20L, CrawledPage.ROUTE_HTTP,
+                ("<html><body><p>" + paragraph + "</p></body></html>").getBytes(StandardCharsets.UTF_8),
+                "UTF-8", List.of(url + "kontakt"), List.of(paragraph));
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long storeBytes(Path directory) throws IOException {
+        long bytes = 0;
+        for (Path segment : segments(directory)) {
+            bytes += Files.size(segment);
+        }
+        return bytes;
+    }
+
+    private static List<String> pageUrls(CrawlStore crawlStore, String partnerKey) {
+        return crawlStore.streamPages(partnerKey).map(StoredPage::getUrl).collect(Collectors.toList());
+    }
+
+    @Test
+    void testPagesAreStoredReplacedAndRecovered() throws IOException {
+        Path directory = Files.createTempDirectory("crawlstore");
+
+        CrawlStore crawlStore = CrawlStore.open(directory.toString(), 200);
+        crawlStore.putPages("BP1", List.of(page("https://a.de/", "Über uns"), page("https://a.de/team", "Das Team")));
+        crawlStore.putPages("BP2", List.of(page("https://b.de/", "Unternehmen")));
+        crawlStore.putPages("BP1", List.of(page("https://a.de/", "Neu")));
+
+        assertEquals(List.of("https://a.de/"), pageUrls(crawlStore, "BP1"));
+        assertEquals(List.of("Neu"), crawlStore.getPage("BP1", "https://a.de/").getParagraphs());
+        assertTrue(crawlStore.getPage("BP2", "https://b.de/").getHtml().contains("Unternehmen"));
+        assertNull(crawlStore.getPage("BP2", "https://b.de/team"));
+        assertTrue(segments(directory).size() > 1); // Rolled over at 200 bytes
+        crawlStore.close();
+
+        // Records appended after the last index entry are recovered, a torn record is cut off
+        Path index = directory.resolve("index.dat");
+        crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        crawlStore.putPages("BP3", List.of(page("https://c.de/", "Profil")));
+        crawlStore.close();
+        Path lastSegment = segments(directory).get(segments(directory).size() - 1);
+        long writtenSize = Files.size(lastSegment);
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10); // Tears the index entry of the page of BP3
+        }
+        Files.write(lastSegment, new byte[] {0x43, 0x52}, StandardOpenOption.APPEND);
+
+        crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        assertEquals(List.of("Profil"), crawlStore.getPage("BP3", "https://c.de/").getParagraphs());
+        assertEquals(List.of("https://a.de/"), pageUrls(crawlStore, "BP1"));
+        assertEquals(List.of("https://a.de/kontakt"), crawlStore.getPage("BP1", "https://a.de/").getLinks());
+        assertFalse(crawlStore.containsPartner("BP4"));
+        assertEquals(writtenSize, Files.size(lastSegment));
+        crawlStore.close();
+    }
+
+    @Test
+    void testIdenticalBodiesAreStoredOnce() throws IOException {
+        Path directory = Files.createTempDirectory("crawlstore");
+        CrawlStore crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        crawlStore.putPages("BP1", List.of(page("https://a.de/impressum", "Gleiche Vorlage"), page("https://a.de/", "Start")));
+        long before = storeBytes(directory);
+        CrawledPage shared = page("https://a.de/impressum", "Gleiche Vorlage");
+        crawlStore.putPages("BP2", List.of(shared));
+        long sharedPageBytes = storeBytes(directory) - before;
+        before = storeBytes(directory);
+        crawlStore.putPages("BP3", List.of(page("https://a.de/impressum", "Andere Vorlage")));
+        long distinctPageBytes = storeBytes(directory) - before;
+
+        assertTrue(sharedPageBytes < distinctPageBytes); // Only the page record, no second body
+        crawlStore.close();
+
+        crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        CrawledPage loaded = crawlStore.getPage("BP2", "https://a.de/impressum");
+        assertEquals(shared.getContentHash(), loaded.getContentHash());
+        assertEquals(shared.getHtml(), loaded.getHtml());
+        assertEquals(crawlStore.getPage("BP1", "https://a.de/impressum").getContentHash(), loaded.getContentHash());
+        crawlStore.close();
+    }
+
+    @Test
+    void testPagesAreStreamedWithoutReading() throws IOException {
+        Path directory = Files.createTempDirectory("crawlstore");
+        CrawlStore crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        crawlStore.putPages("BP1", List.of(page("https://a.de/", "Start"), page("https://a.de/ueber-uns", "Über uns")));
+
+        List<StoredPage> pages = crawlStore.streamPages("BP1").collect(Collectors.toList());
+        assertEquals(List.of("https://a.de/", "https://a.de/ueber-uns"),
+                pages.stream().map(StoredPage::getUrl).collect(Collectors.toList()));
+        assertFalse(pages.get(1).isLoaded());
+        assertEquals(List.of("Über uns"), pages.get(1).load().getParagraphs());
+        assertTrue(pages.get(1).isLoaded());
+        assertFalse(pages.get(0).isLoaded());
+        assertEquals(0, crawlStore.streamPages("BP2").count());
+        crawlStore.close();
+    }
+
+    @Test
+    void testPagesAreAppendedAndRemoved() throws IOException {
+        Path directory = Files.createTempDirectory("crawlstore");
+        CrawlStore crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        crawlStore.appendPages("site", List.of(page("https://a.de/", "Start")));
+        crawlStore.appendPages("site", List.of(page("https://a.de/team", "Team"), page("https://a.de/", "Neu")));
+        crawlStore.appendPages("other", List.of(page("https://b.de/", "Andere")));
+        crawlStore.removePartner("other");
+        crawlStore.close();
+
+        crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        assertEquals(List.of("https://a.de/", "https://a.de/team"), pageUrls(crawlStore, "site"));
+        assertEquals(List.of("Neu"), crawlStore.getPage("site", "https://a.de/").getParagraphs());
+        assertFalse(crawlStore.containsPartner("other"));
+        crawlStore.close();
+    }
+
+    @Test
+    void testUnreferencedRecordsAreCompacted() throws IOException {
+        Path directory = Files.createTempDirectory("crawlstore");
+        CrawlStore crawlStore = CrawlStore.open(directory.toString(), 300);
+        crawlStore.putPages("BP1", List.of(page("https://a.de/", "Start"), page("https://a.de/team", "Team")));
+        crawlStore.appendPages("crawl-journal:a.de", List.of(page("https://a.de/", "Start")));
+        crawlStore.putPages("BP2", List.of(page("https://b.de/", "Alt")));
+        crawlStore.putPages("BP2", List.of(page("https://b.de/", "Neu")));
+        crawlStore.removePartner("crawl-journal:a.de");
+        long bytesBefore = storeBytes(directory);
+        List<Path> segmentsBefore = segments(directory);
+
+        crawlStore.compact();
+        assertTrue(storeBytes(directory) < bytesBefore);
+        assertFalse(Files.exists(segmentsBefore.get(0)));
+        assertEquals("Team", crawlStore.getPage("BP1", "https://a.de/team").getParagraphs().get(0));
+        crawlStore.putPages("BP3", List.of(page("https://c.de/", "Profil")));
+        crawlStore.close();
+
+        crawlStore = CrawlStore.open(directory.toString(), 300);
+        assertEquals(Set.of("BP1", "BP2", "BP3"), crawlStore.getPartnerKeys());
+        assertEquals("Start", crawlStore.getPage("BP1", "https://a.de/").getParagraphs().get(0));
+        assertEquals("Neu", crawlStore.getPage("BP2", "https://b.de/").getParagraphs().get(0));
+        assertEquals("Profil", crawlStore.getPage("BP3", "https://c.de/").getParagraphs().get(0));
+        crawlStore.close();
+    }
+
+    @Test
+    void testStoreIsCompactedOnOpenWhenMostlyUnreferenced() throws IOException {
+        Path directory = Files.createTempDirectory("crawlstore");
+        CrawlStore crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        for (int i = 0; i < 5; i++) {
+            crawlStore.putPages("BP1", List.of(page("https://a.de/", "Version " + i)));
+        }
+        crawlStore.close();
+        long bytesBefore = storeBytes(directory);
+
+        crawlStore = CrawlStore.open(directory.toString(), 1024 * 1024);
+        assertTrue(storeBytes(directory) < bytesBefore / 2);
+        assertEquals("Version 4", crawlStore.getPage("BP1", "https://a.de/").getParagraphs().get(0));
+        crawlStore.close();
+    }
+}
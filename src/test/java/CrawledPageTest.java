@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import v2.Objects.CrawledPage;
+import v2.Objects.StoredPage;
+import v2.dataProcessing.FileManager;
+
+class CrawledPageTest {
+
+    private static final String HTML = "<html><body><p>Wir sind ein Familienunternehmen.</p>"
+            + "<a href=\"/ueber-uns\">Über uns</a></body></html>";
+
+    @Test
+    void testBodyIsStoredCompressed() {
+        CrawledPage page = new CrawledPage("https://a.de/", 200, 1L, 20L, CrawledPage.ROUTE_HTTP,
+                HTML.getBytes(StandardCharsets.UTF_8), "UTF-8", List.of("https://a.de/ueber-uns"),
+                List.of("Wir sind ein Familienunternehmen."));
+
+        assertEquals(HTML, page.getHtml());
+        assertEquals("Wir sind ein Familienunternehmen.", page.toDocument().selectFirst("p").text());
+    }
+
+    @Test
+    void testPagesAndLegacyDocumentsAreLoaded() throws IOException {
+        File pagesFile = File.createTempFile("pages", ".json");
+        try {
+            CrawledPage page = new CrawledPage("https://a.de/", 200, 1L, 20L, CrawledPage.ROUTE_HTTP,
+                    HTML.getBytes(StandardCharsets.UTF_8), "UTF-8", List.of("https://a.de/ueber-uns"),
+                    List.of("Wir sind ein Familienunternehmen."));
+            String pageLine = "{\"url\":\"https://a.de/\",\"fetchMillis\":20,\"charset\":\"UTF-8\","
+                    + "\"headers\":{\"Content-Type\":[\"text/html; charset=UTF-8\"]},"
+                    + "\"bodyLength\":" + page.getBodyLength() + ",\"contentHash\":\"" + page.getContentHash() + "\","
+                    + "\"compressedBody\":\"" + Base64.getEncoder().encodeToString(page.getCompressedBody()) + "\","
+                    + "\"links\":[\"https://a.de/ueber-uns\"],\"paragraphs\":[\"Wir sind ein Familienunternehmen.\"]}\n";
+            String legacyLine = "{\"html\":\"" + HTML.replace("\"", "\\\"")
+                    + "\",\"baseUri\":\"https://a.de/kontakt\",\"charset\":\"UTF-8\",\"escapeMode\":\"base\"}\n";
+            Files.writeString(pagesFile.toPath(), pageLine + legacyLine);
+
+            List<StoredPage> storedPages = FileManager.loadStoredPagesFromFile(pagesFile.getPath());
+            assertEquals(2, storedPages.size());
+            assertTrue(storedPages.get(0).isLoaded());
+            assertFalse(storedPages.get(1).isLoaded()); // Converted when it is loaded
+
+            CrawledPage loaded = storedPages.get(0).load();
+            assertEquals("https://a.de/", loaded.getUrl());
+            assertEquals(20L, loaded.getFetchMillis());
+            assertEquals(page.getLinks(), loaded.getLinks());
+            assertEquals(page.getParagraphs(), loaded.getParagraphs());
+            assertEquals(HTML, loaded.getHtml());
+            assertEquals(page.getContentHash(), loaded.getContentHash());
+            assertEquals("text/html; charset=UTF-8", loaded.getHeader("content-type"));
+
+            CrawledPage converted = storedPages.get(1).load();
+            assertEquals("https://a.de/kontakt", converted.getUrl());
+            assertEquals(HTML, converted.getHtml());
+            assertEquals(List.of("https://a.de/ueber-uns"), converted.getLinks());
+            assertEquals(List.of("Wir sind ein Familienunternehmen."), converted.getParagraphs());
+        } finally {
+            pagesFile.delete();
+        }
+    }
+}
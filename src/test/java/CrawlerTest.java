@@ -0,0 +1,149 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import v2.Objects.CrawledPage;
+import v2.crawler.Crawler;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+class CrawlerTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Map<String, String> site = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            hits.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+            String html = site.get(path);
+            byte[] body = (html == null ? "Not found" : html).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(html == null ? 404 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private static CrawlerConfig crawlerConfig() {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.warmUpWebDrivers = false;
+        crawlerConfig.useRobotsTxt = false;
+        crawlerConfig.useSitemaps = false;
+        crawlerConfig.useHttpCache = false;
+        crawlerConfig.minDelayPerHostMillis = 0;
+        return crawlerConfig;
+    }
+
+    private static String page(String text, String... links) {
+        StringBuilder html = new StringBuilder("<html><body><p>").append(text).append("</p>");
+        for (String link : links) {
+            html.append("<a href=\"").append(link).append("\">").append(link).append("</a>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private static List<String> paths(List<CrawledPage> pages, String baseUrl) {
+        return pages.stream().map(page -> page.getUrl().substring(baseUrl.length())).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void testLinksAreFollowedUpToTheMaximumDepth() throws Exception {
+        site.put("/", page("Startseite", "/about-us"));
+        site.put("/about-us", page("Über uns", "/about-us/our-story"));
+        site.put("/about-us/our-story", page("Geschichte", "/about-us/our-story/historie"));
+        site.put("/about-us/our-story/historie", page("Historie"));
+        CrawlerConfig crawlerConfig = crawlerConfig();
+        crawlerConfig.maxCrawlDepth = 2;
+
+        Crawler crawler = new Crawler(crawlerConfig);
+        List<CrawledPage> pages = crawler.crawlFullPage(baseUrl + "/").get();
+        crawler.shutdown();
+
+        assertEquals(List.of("/", "/about-us", "/about-us/our-story"), paths(pages, baseUrl));
+        assertNull(hits.get("/about-us/our-story/historie")); // Three clicks away
+    }
+
+    @Test
+    void testPageBudgetKeepsTheHighestPriorityLinks() throws Exception {
+        site.put("/", page("Startseite", "/story", "/profil", "/company", "/about-us"));
+        site.put("/story", page("Geschichte"));
+        site.put("/profil", page("Profil"));
+        site.put("/company", page("Unternehmen"));
+        site.put("/about-us", page("Über uns"));
+        CrawlerConfig crawlerConfig = crawlerConfig();
+        crawlerConfig.maxPagesPerSite = 3;
+
+        Crawler crawler = new Crawler(crawlerConfig);
+        List<CrawledPage> pages = crawler.crawlFullPage(baseUrl + "/").get();
+        crawler.shutdown();
+
+        assertEquals("/", pages.get(0).getUrl().substring(baseUrl.length())); // The base page first
+        assertEquals(List.of("/", "/about-us", "/company"), paths(pages, baseUrl));
+        assertNull(hits.get("/profil"));
+        assertNull(hits.get("/story"));
+    }
+
+    @Test
+    void testPageFetchedForAnotherSiteIsShared() throws Exception {
+        site.put("/", page("Startseite", "/de/about-us"));
+        site.put("/de/", page("Deutsch", "/de/about-us"));
+        site.put("/de/about-us", page("Über uns"));
+
+        Crawler crawler = new Crawler(crawlerConfig());
+        List<CrawledPage> firstSite = crawler.crawlFullPage(baseUrl + "/").get();
+        Map<String, CrawledPage> fetched = firstSite.stream()
+                .collect(Collectors.toMap(CrawledPage::getUrl, Function.identity()));
+        crawler.setSharedPageLookup(fetched::get);
+        List<CrawledPage> secondSite = crawler.crawlFullPage(baseUrl + "/de/").get();
+        crawler.shutdown();
+
+        assertEquals(List.of("/", "/de/about-us"), paths(firstSite, baseUrl));
+        assertEquals(List.of("/de/", "/de/about-us"), paths(secondSite, baseUrl)); // Not dropped as already seen
+        assertEquals(1, hits.get("/de/about-us").get()); // Taken from the lookup, not fetched again
+    }
+
+    @Test
+    void testSharedPageMissingFromLookupIsFetchedAgain() throws Exception {
+        site.put("/", page("Startseite", "/de/about-us"));
+        site.put("/de/", page("Deutsch", "/de/about-us"));
+        site.put("/de/about-us", page("Über uns"));
+
+        Crawler crawler = new Crawler(crawlerConfig());
+        crawler.crawlFullPage(baseUrl + "/").get();
+        List<CrawledPage> secondSite = crawler.crawlFullPage(baseUrl + "/de/").get();
+        crawler.shutdown();
+
+        assertTrue(paths(secondSite, baseUrl).contains("/de/about-us"));
+        assertEquals(2, hits.get("/de/about-us").get());
+    }
+}
@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+
+import v2.dataProcessing.DunsAndBradstreetIndex;
+
+class DunsAndBradstreetIndexTest {
+
+    private static final String PARTNERS = "[{\"address\": {\"city\": \"Göppingen\"}, \"dunsIndustryCodeList\": [\"60.20\", \"73.11\"],"
+            + " \"key\": \"BP1\", \"name\": \"A\"},"
+            + " {\"key\": \"BP2\", \"dunsIndustryCodeList\": null},"
+            + " {\"key\": \"BP2\", \"dunsIndustryCodeList\": [\"10.00\"]},"
+            + " {\"key\": \"BP4\", \"dunsIndustryCodeList\": []}]";
+
+    @Test
+    void testCodesAreIndexedAndReadFromTheSidecar() throws IOException {
+        Path directory = Files.createTempDirectory("duns");
+        Path json = directory.resolve("duns.json");
+        Files.writeString(json, PARTNERS);
+
+        DunsAndBradstreetIndex index = DunsAndBradstreetIndex.load(json.toString());
+        assertArrayEquals(new String[] {"6020", "7311"}, index.getCodes("BP1"));
+        assertArrayEquals(new String[] {"1000"}, index.getCodes("BP2"));
+        assertEquals(0, index.getCodes("BP3").length);
+        assertEquals(0, index.getCodes(null).length);
+        assertEquals(0, index.getCodes("BP4").length);
+        assertTrue(index.containsPartner("BP4")); // Listed without codes
+        assertFalse(index.containsPartner("BP3"));
+        assertTrue(Files.exists(directory.resolve("duns.json.idx")));
+
+        // The sidecar is used while size and modification time match, even if the JSON could not be parsed
+        FileTime modified = Files.getLastModifiedTime(json);
+        Files.writeString(json, "x".repeat(PARTNERS.getBytes(StandardCharsets.UTF_8).length));
+        Files.setLastModifiedTime(json, modified);
+        assertArrayEquals(new String[] {"6020", "7311"}, DunsAndBradstreetIndex.load(json.toString()).getCodes("BP1"));
+
+        // A changed file invalidates the sidecar
+        Files.writeString(json, "[{\"key\": \"BP1\", \"dunsIndustryCodeList\": [\"01.11\"]}]");
+        assertArrayEquals(new String[] {"0111"}, DunsAndBradstreetIndex.load(json.toString()).getCodes("BP1"));
+        assertEquals(1, DunsAndBradstreetIndex.load(json.toString()).size());
+        assertSame(DunsAndBradstreetIndex.forFile(json.toString()), DunsAndBradstreetIndex.forFile(json.toString()));
+    }
+}
@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.ErrorTracking.ErrorDetail;
+import v2.crawler.ErrorTracking.ErrorTracker;
+
+class ErrorTrackerTest {
+
+    @Test
+    void testErrorsAreCountedAndLoggedFromManyThreads() throws Exception {
+        ErrorTracker errorTracker = ErrorTracker.getInstance();
+        File log = File.createTempFile("error", ".log");
+        long before = errorTracker.getErrorCount();
+        try {
+            errorTracker.startErrorLog(log.getPath());
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 2000; i++) {
+                int n = i;
+                executor.execute(() -> errorTracker.addError(new ErrorDetail("Jsoup", "TrackerTestError",
+                        "https://host" + (n % 4) + ".de/page" + n, "failed", null)));
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            errorTracker.closeErrorLog();
+
+            assertEquals(before + 2000, errorTracker.getErrorCount());
+            assertEquals(500L, errorTracker.getErrorCounts().get("Jsoup TrackerTestError host0.de"));
+            assertTrue(errorTracker.generateErrorSummary().contains("TrackerTestError: 2000"));
+            assertTrue(errorTracker.getErrorList().size() <= 1024);
+
+            List<String> lines = Files.readAllLines(log.toPath());
+            assertEquals(2000, lines.stream().filter(line -> line.contains("TrackerTestError, URL")).count());
+            assertTrue(lines.contains("TrackerTestError: 2000"));
+        } finally {
+            log.delete();
+        }
+    }
+
+    @Test
+    void testHostsBeyondTheCapAreCountedTogether() {
+        ErrorTracker errorTracker = ErrorTracker.getInstance();
+        for (int i = 0; i < 1500; i++) {
+            errorTracker.addError(new ErrorDetail("Jsoup", "HostCapTestError", "https://host" + i + ".de/", "failed", null));
+        }
+        errorTracker.addError(new ErrorDetail("Jsoup", "HostCapTestError", "https://host0.de/kontakt", "failed", null));
+
+        Map<String, Long> counts = errorTracker.getErrorCounts().entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith("Jsoup HostCapTestError "))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertEquals(1001, counts.size());
+        assertEquals(2L, counts.get("Jsoup HostCapTestError host0.de")); // Hosts counted before keep their counter
+        assertEquals(500L, counts.get("Jsoup HostCapTestError other hosts"));
+    }
+}
@@ -0,0 +1,46 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.FallbackPolicy;
+import v2.dataProcessing.PageExtract;
+
+class FallbackPolicyTest {
+
+    private static PageExtract extract(String html) {
+        return PageExtract.fromDocument(Jsoup.parse(html, "https://a.de/"));
+    }
+
+    @Test
+    void testFailuresABrowserCannotFixAreSkipped() {
+        FallbackPolicy fallbackPolicy = new FallbackPolicy();
+
+        assertFalse(fallbackPolicy.shouldRenderAfterFailure(new HttpStatusException("HTTP error", 404, "https://a.de"), true));
+        assertFalse(fallbackPolicy.shouldRenderAfterFailure(new UnknownHostException("a.de"), true));
+        assertFalse(fallbackPolicy.shouldRenderAfterFailure(new SocketTimeoutException("Read timed out"), true));
+        assertTrue(fallbackPolicy.shouldRenderAfterFailure(new HttpStatusException("HTTP error", 403, "https://a.de"), true));
+        assertFalse(fallbackPolicy.shouldRenderAfterFailure(new IOException("Unexpected end of stream"), false));
+
+        assertEquals(1L, fallbackPolicy.getRouteCounts().get("skip (status 404)"));
+        assertEquals(1L, fallbackPolicy.getRouteCounts().get("render (status 403)"));
+    }
+
+    @Test
+    void testJavaScriptPagesAreRendered() {
+        FallbackPolicy fallbackPolicy = new FallbackPolicy();
+
+        assertTrue(fallbackPolicy.shouldRenderPage(extract("<html><body><div id=\"root\"></div></body></html>")));
+        assertTrue(fallbackPolicy.shouldRenderPage(extract(
+                "<html><body><noscript>Please enable JavaScript to view this site.</noscript></body></html>")));
+        assertFalse(fallbackPolicy.shouldRenderPage(extract(
+                "<html><body><div id=\"__next\"><p>Wir sind ein Familienunternehmen.</p><a href=\"/ueber-uns\">Über uns</a></div></body></html>")));
+    }
+}
@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.FetchEngine;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+class FetchEngineTest {
+
+    /**
+     * Returns true if the executor runs as many tasks at once as the latch counts, each waiting for all others.
+     */
+    private static boolean runsInParallel(FetchEngine fetchEngine, int tasks) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(tasks);
+        CountDownLatch finished = new CountDownLatch(tasks);
+        for (int i = 0; i < tasks; i++) {
+            fetchEngine.getFetchExecutor().execute(() -> {
+                started.countDown();
+                try {
+                    if (started.await(5, TimeUnit.SECONDS)) {
+                        finished.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        return finished.await(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPooledEngineRunsFetchThreadsInParallel() throws InterruptedException {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.fetchMode = FetchEngine.POOLED;
+        crawlerConfig.fetchThreads = 8;
+        crawlerConfig.maxConcurrentFetches = 20;
+        FetchEngine fetchEngine = new FetchEngine(crawlerConfig);
+
+        assertEquals(8, fetchEngine.getMaxConcurrentFetches()); // Capped by the threads
+        assertTrue(runsInParallel(fetchEngine, 8));
+        fetchEngine.shutdown();
+    }
+
+    @Test
+    void testVirtualEngineFallsBackToPooledBeforeJava21() throws InterruptedException {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.fetchMode = FetchEngine.VIRTUAL;
+        crawlerConfig.fetchThreads = 8;
+        crawlerConfig.maxConcurrentFetches = 8;
+        crawlerConfig.maxConcurrentVirtualFetches = 1000;
+        FetchEngine fetchEngine = new FetchEngine(crawlerConfig);
+
+        if (Runtime.version().feature() >= 21) {
+            assertEquals(1000, fetchEngine.getMaxConcurrentFetches());
+            assertTrue(runsInParallel(fetchEngine, 100));
+        } else {
+            assertEquals(8, fetchEngine.getMaxConcurrentFetches()); // Bounded like the pooled engine
+            assertTrue(runsInParallel(fetchEngine, 8));
+        }
+        fetchEngine.shutdown();
+    }
+}
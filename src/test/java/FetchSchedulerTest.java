@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.FetchEngine;
+import v2.crawler.FetchScheduler;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+class FetchSchedulerTest {
+
+    private static CrawlerConfig crawlerConfig(int maxConcurrentFetches, int minDelayPerHostMillis) {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.fetchMode = FetchEngine.POOLED;
+        crawlerConfig.fetchThreads = maxConcurrentFetches;
+        crawlerConfig.maxConcurrentFetches = maxConcurrentFetches;
+        crawlerConfig.maxConcurrentFetchesPerHost = 4;
+        crawlerConfig.minDelayPerHostMillis = minDelayPerHostMillis;
+        return crawlerConfig;
+    }
+
+    @Test
+    void testFetchesStayWithinTheGlobalCap() throws Exception {
+        CrawlerConfig crawlerConfig = crawlerConfig(2, 0);
+        FetchEngine fetchEngine = new FetchEngine(crawlerConfig);
+        FetchScheduler fetchScheduler = new FetchScheduler(fetchEngine, crawlerConfig);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Integer>> fetches = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            fetches.add(fetchScheduler.submit("https://host" + i + ".de/", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                return running.decrementAndGet();
+            }));
+        }
+        CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, maxRunning.get());
+        fetchScheduler.shutdown();
+        fetchEngine.shutdown();
+    }
+
+    @Test
+    void testFetchesOnTheSameHostWaitForTheDelay() throws Exception {
+        CrawlerConfig crawlerConfig = crawlerConfig(4, 100);
+        FetchEngine fetchEngine = new FetchEngine(crawlerConfig);
+        FetchScheduler fetchScheduler = new FetchScheduler(fetchEngine, crawlerConfig);
+
+        List<CompletableFuture<Long>> sameHost = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sameHost.add(fetchScheduler.submit("https://a.de/page" + i, System::nanoTime));
+        }
+        long otherHostStart = fetchScheduler.submit("https://b.de/", System::nanoTime).get(10, TimeUnit.SECONDS);
+
+        List<Long> starts = new ArrayList<>();
+        for (CompletableFuture<Long> fetch : sameHost) {
+            starts.add(fetch.get(10, TimeUnit.SECONDS));
+        }
+        starts.sort(null);
+        for (int i = 1; i < starts.size(); i++) {
+            assertTrue(starts.get(i) - starts.get(i - 1) >= TimeUnit.MILLISECONDS.toNanos(90));
+        }
+        assertTrue(otherHostStart < starts.get(1)); // Not held back by the delay of the other host
+        fetchScheduler.shutdown();
+        fetchEngine.shutdown();
+    }
+
+    @Test
+    void testRejectedFetchFailsAndGivesItsPermitBack() throws Exception {
+        CrawlerConfig crawlerConfig = crawlerConfig(1, 0);
+        FetchEngine fetchEngine = new FetchEngine(crawlerConfig);
+        FetchScheduler fetchScheduler = new FetchScheduler(fetchEngine, crawlerConfig);
+        fetchEngine.shutdown();
+
+        for (int i = 0; i < 2; i++) { // The second one only gets to the executor if the first released the cap
+            CompletableFuture<String> fetch = fetchScheduler.submit("https://a.de/", () -> "fetched");
+            ExecutionException e = assertThrows(ExecutionException.class, () -> fetch.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        fetchScheduler.shutdown();
+    }
+}
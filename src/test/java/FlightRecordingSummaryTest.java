@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import v2.Objects.CrawledPage;
+import v2.Profiling.FetchEvent;
+import v2.Profiling.FlightRecording;
+import v2.Profiling.FlightRecordingSummary;
+import v2.Profiling.ProcessingStageEvent;
+import v2.crawler.LatencyHistogram;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.ProfilingConfig;
+
+class FlightRecordingSummaryTest {
+
+    @Test
+    void testRecordedEventsAreSummarizedPerStage() throws Exception {
+        Path recordingPath = Files.createTempDirectory("jfr").resolve("run.jfr");
+        ProfilingConfig profilingConfig = new ConfigManager().getProfilingConfig();
+
+        FetchEvent notRecorded = new FetchEvent();
+        notRecorded.begin();
+        notRecorded.end();
+        assertFalse(notRecorded.shouldCommit()); // Disabled without a recording
+
+        profilingConfig.recordFlightEvents = true;
+        profilingConfig.flightRecordingPath = recordingPath.toString();
+        FlightRecording flightRecording = FlightRecording.start(profilingConfig);
+        for (int i = 0; i < 3; i++) {
+            FetchEvent fetchEvent = new FetchEvent();
+            fetchEvent.begin();
+            Thread.sleep(20);
+            fetchEvent.route = CrawledPage.ROUTE_HTTP;
+            fetchEvent.timeToFirstByte = 10;
+            fetchEvent.commit();
+        }
+        FetchEvent renderEvent = new FetchEvent();
+        renderEvent.begin();
+        renderEvent.route = CrawledPage.ROUTE_SELENIUM;
+        renderEvent.commit();
+        ProcessingStageEvent stageEvent = new ProcessingStageEvent();
+        stageEvent.begin();
+        stageEvent.commitStage("TextProcessor", "removeShortParagraphs", 10, 4);
+        flightRecording.stop();
+
+        Map<String, LatencyHistogram> stages = FlightRecordingSummary.summarize(recordingPath);
+        assertEquals(3, stages.get("fetch http").getCount());
+        assertTrue(stages.get("fetch http").getPercentile(50) >= 19);
+        assertEquals(10, stages.get("fetch http ttfb").getPercentile(99));
+        assertEquals(1, stages.get("fetch selenium").getCount());
+        assertFalse(stages.containsKey("fetch selenium ttfb")); // Not measured by renders
+        assertEquals(1, stages.get("TextProcessor removeShortParagraphs").getCount());
+        assertTrue(FlightRecordingSummary.format(stages).contains("fetch http"));
+    }
+}
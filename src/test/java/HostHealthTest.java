@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.HostHealth;
+import v2.crawler.HostUnavailableException;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+class HostHealthTest {
+
+    private static final String URL = "http://127.0.0.1:1/about-us";
+
+    @Test
+    void testBreakerOpensAfterConsecutiveConnectFailures() throws Exception {
+        HostHealth hostHealth = new HostHealth(new ConfigManager().getCrawlerConfig());
+        hostHealth.checkAvailable(URL);
+
+        hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        hostHealth.recordFailure(URL, new HttpStatusException("HTTP error fetching URL", 404, URL));
+        hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        assertTrue(hostHealth.isAvailable(URL)); // The 404 proved the host reachable and ended the run of failures
+
+        hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        assertFalse(hostHealth.isAvailable(URL));
+        assertThrows(HostUnavailableException.class, () -> hostHealth.checkAvailable("http://127.0.0.1:1/impressum"));
+    }
+
+    @Test
+    void testSuccessfulProbeClosesBreaker() throws Exception {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.circuitBreakerOpenMillis = 0;
+        HostHealth hostHealth = new HostHealth(crawlerConfig);
+        hostHealth.checkAvailable(URL);
+        for (int i = 0; i < crawlerConfig.circuitBreakerFailureThreshold; i++) {
+            hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        }
+
+        hostHealth.checkAvailable(URL); // The probe
+        assertThrows(HostUnavailableException.class, () -> hostHealth.checkAvailable(URL));
+
+        hostHealth.recordSuccess(URL);
+        assertDoesNotThrow(() -> hostHealth.checkAvailable(URL));
+    }
+
+    @Test
+    void testProbeFailingWithoutConnectionFailureReleasesHost() throws Exception {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.circuitBreakerOpenMillis = 0;
+        HostHealth hostHealth = new HostHealth(crawlerConfig);
+        hostHealth.checkAvailable(URL);
+        for (int i = 0; i < crawlerConfig.circuitBreakerFailureThreshold; i++) {
+            hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        }
+
+        assertTrue(hostHealth.checkAvailable(URL)); // The probe
+        hostHealth.recordFailure(URL, new SSLHandshakeException("Received fatal alert: handshake_failure"));
+        assertTrue(hostHealth.isAvailable(URL));
+        assertFalse(assertDoesNotThrow(() -> hostHealth.checkAvailable(URL))); // Breaker closed, no probe needed
+
+        for (int i = 0; i < crawlerConfig.circuitBreakerFailureThreshold; i++) {
+            hostHealth.recordFailure(URL, new ConnectException("Connection refused"));
+        }
+        assertTrue(hostHealth.checkAvailable(URL)); // A probe ending in an unexpected exception
+        hostHealth.releaseProbe(URL);
+        assertTrue(hostHealth.isAvailable(URL));
+        assertTrue(hostHealth.checkAvailable(URL));
+    }
+
+    @Test
+    void testReadTimeoutsDoNotOpenBreaker() throws Exception {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        HostHealth hostHealth = new HostHealth(crawlerConfig);
+        hostHealth.checkAvailable(URL);
+
+        for (int i = 0; i <= crawlerConfig.circuitBreakerFailureThreshold; i++) {
+            hostHealth.recordFailure(URL, new SocketTimeoutException("Read timed out"));
+        }
+        assertTrue(hostHealth.isAvailable(URL)); // A slow host is given a longer timeout, not cut off
+
+        for (int i = 0; i < crawlerConfig.circuitBreakerFailureThreshold - 1; i++) {
+            hostHealth.recordFailure(URL, new SocketTimeoutException("Connect timed out"));
+        }
+        hostHealth.recordFailure(URL, new HttpConnectTimeoutException("HTTP connect timed out"));
+        assertFalse(hostHealth.isAvailable(URL));
+    }
+}
@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import v2.Objects.CrawledPage;
+import v2.Objects.StoredPage;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.HtmlConfig;
+import v2.dataProcessing.HtmlProcessor;
+
+class HtmlProcessorTest {
+
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    private StoredPage storedPage(String url, String html) {
+        return new StoredPage(url, () -> {
+            loads.computeIfAbsent(url, key -> new AtomicInteger()).incrementAndGet();
+            return new CrawledPage(url, 200, 1L, 20L, CrawledPage.ROUTE_HTTP, html.getBytes(StandardCharsets.UTF_8),
+                    "UTF-8", List.of(), List.of());
+        });
+    }
+
+    private List<StoredPage> storedPages() {
+        return List.of(
+                storedPage("https://a.de/story", "<html><body><p>Geschichte</p></body></html>"),
+                storedPage("https://a.de/company", "<html><body><nav></nav><p>Unternehmen</p></body></html>"),
+                storedPage("https://a.de/profil", "<html><body><nav></nav><p>Profil</p></body></html>"),
+                storedPage("https://a.de/about-us", "<html><body><nav></nav><p>Über uns</p></body></html>"));
+    }
+
+    private static HtmlConfig htmlConfig(List<String> processingSequence, List<String> ignoreTags) {
+        HtmlConfig htmlConfig = new ConfigManager().getHtmlConfig();
+        htmlConfig.processingSequence = processingSequence;
+        htmlConfig.ignoreTags = ignoreTags;
+        htmlConfig.maxSubPages = 2;
+        return htmlConfig;
+    }
+
+    private static List<String> urls(List<CrawledPage> pages) {
+        return pages.stream().map(CrawledPage::getUrl).collect(Collectors.toList());
+    }
+
+    @Test
+    void testOnlyThePagesKeptByUrlAreRead() {
+        HtmlProcessor htmlProcessor = new HtmlProcessor(htmlConfig(List.of("sortPriority", "limitDocuments"), null));
+
+        List<CrawledPage> pages = htmlProcessor.processStoredPages(storedPages());
+
+        assertEquals(List.of("https://a.de/about-us", "https://a.de/story"), urls(pages));
+        assertEquals(Map.of("https://a.de/about-us", 1, "https://a.de/story", 1), counts());
+    }
+
+    @Test
+    void testPagesReadByTheTagFilterAreReadOnce() {
+        HtmlProcessor htmlProcessor = new HtmlProcessor(
+                htmlConfig(List.of("sortPriority", "filterIgnoredTags", "limitDocuments"), List.of("nav")));
+
+        List<CrawledPage> pages = htmlProcessor.processStoredPages(storedPages());
+
+        assertEquals(List.of("https://a.de/about-us", "https://a.de/profil"), urls(pages)); // Pages with a <nav>
+        assertEquals(Map.of("https://a.de/story", 1, "https://a.de/company", 1, "https://a.de/profil", 1,
+                "https://a.de/about-us", 1), counts());
+    }
+
+    private Map<String, Integer> counts() {
+        return loads.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get()));
+    }
+}
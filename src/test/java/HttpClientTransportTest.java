@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.Transport.CookieJar;
+import v2.crawler.Transport.FetchRequest;
+import v2.crawler.Transport.HttpClientTransport;
+import v2.dataProcessing.ConfigManager;
+
+class HttpClientTransportTest {
+
+    /**
+     * Answers a single request with a 1000 byte body, sent in chunks of 10 bytes with a pause after each.
+     */
+    private static Thread serveSlowly(ServerSocket serverSocket, long pauseMillis) {
+        Thread thread = new Thread(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                InputStream in = socket.getInputStream();
+                byte[] buffer = new byte[4096];
+                in.read(buffer); // The request, small enough for one read
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: 1000\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                for (int i = 0; i < 100; i++) {
+                    out.write("<p>abcdef ".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    Thread.sleep(pauseMillis);
+                }
+            } catch (IOException | InterruptedException e) {
+                // The client gave up
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void testSlowBodyFailsAtTheRequestDeadline() throws Exception {
+        HttpClientTransport transport = new HttpClientTransport(new ConfigManager().getCrawlerConfig(), new CookieJar());
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            serveSlowly(serverSocket, 100); // 10 s for the whole body
+            FetchRequest request = new FetchRequest("http://127.0.0.1:" + serverSocket.getLocalPort() + "/", 500);
+
+            long start = System.nanoTime();
+            assertThrows(HttpTimeoutException.class, () -> transport.fetch(request));
+            assertTrue(System.nanoTime() - start < 3_000_000_000L);
+        }
+    }
+
+    @Test
+    void testBodyWithinTheDeadlineIsRead() throws Exception {
+        HttpClientTransport transport = new HttpClientTransport(new ConfigManager().getCrawlerConfig(), new CookieJar());
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            serveSlowly(serverSocket, 0);
+            FetchRequest request = new FetchRequest("http://127.0.0.1:" + serverSocket.getLocalPort() + "/", 5000);
+
+            byte[] body = transport.fetch(request).getBody();
+            assertArrayEquals("<p>abcdef ".repeat(100).getBytes(StandardCharsets.US_ASCII), body);
+        }
+    }
+}
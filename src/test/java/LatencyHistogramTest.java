@@ -0,0 +1,37 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.LatencyHistogram;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.125, "p50 was " + p50);
+        assertTrue(p99 >= 990 && p99 <= 990 * 1.125, "p99 was " + p99);
+    }
+
+    @Test
+    void testSmallAndOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+
+        histogram.record(-5);
+        histogram.record(3);
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(3, histogram.getPercentile(100));
+
+        histogram.record(Long.MAX_VALUE);
+        assertTrue(histogram.getPercentile(100) > 1_000_000);
+    }
+}
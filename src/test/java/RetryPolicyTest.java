@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+
+import org.jsoup.HttpStatusException;
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.HostUnavailableException;
+import v2.crawler.RetryPolicy;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+class RetryPolicyTest {
+
+    private static RetryPolicy retryPolicy(long baseDelayMillis, long maxDelayMillis) {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.maxFetchRetries = 3;
+        crawlerConfig.retryBaseDelayMillis = baseDelayMillis;
+        crawlerConfig.retryMaxDelayMillis = maxDelayMillis;
+        return new RetryPolicy(crawlerConfig);
+    }
+
+    private static HttpStatusException status(int statusCode) {
+        return new HttpStatusException("HTTP error fetching URL", statusCode, "https://a.de/");
+    }
+
+    @Test
+    void testOnlyTransientFailuresAreRetried() {
+        RetryPolicy retryPolicy = retryPolicy(100, 1000);
+
+        assertTrue(retryPolicy.isRetryable(status(429)));
+        assertTrue(retryPolicy.isRetryable(status(503)));
+        assertTrue(retryPolicy.isRetryable(new SocketTimeoutException("Read timed out")));
+        assertTrue(retryPolicy.isRetryable(new HttpTimeoutException("request timed out")));
+        assertTrue(retryPolicy.isRetryable(new ConnectException("Connection refused")));
+        assertTrue(retryPolicy.isRetryable(new IOException("Connection reset")));
+
+        assertFalse(retryPolicy.isRetryable(status(404)));
+        assertFalse(retryPolicy.isRetryable(status(500)));
+        assertFalse(retryPolicy.isRetryable(new UnknownHostException("a.de")));
+        assertFalse(retryPolicy.isRetryable(new HostUnavailableException("a.de", "Circuit breaker open")));
+        assertFalse(retryPolicy.isRetryable(new IOException("Too many redirects")));
+    }
+
+    @Test
+    void testBackoffDoublesWithJitterUpToTheMaximum() {
+        RetryPolicy retryPolicy = retryPolicy(100, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            long first = retryPolicy.backoffMillis(1);
+            long third = retryPolicy.backoffMillis(3);
+            long tenth = retryPolicy.backoffMillis(10);
+            assertTrue(first >= 50 && first <= 100, "first retry: " + first);
+            assertTrue(third >= 200 && third <= 400, "third retry: " + third);
+            assertTrue(tenth >= 500 && tenth <= 1000, "tenth retry: " + tenth);
+        }
+        assertEquals(3, retryPolicy.getMaxRetries());
+    }
+}
@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.Discovery.RobotsRules;
+
+class RobotsRulesTest {
+
+    private static final String ROBOTS_TXT = String.join("\n",
+            "User-agent: googlebot",
+            "Disallow: /",
+            "",
+            "User-agent: bingbot",
+            "User-agent: *",
+            "Disallow: /intern/ # internal pages",
+            "Allow: /intern/ueber-uns$",
+            "Disallow: /*.pdf$",
+            "Sitemap: https://www.example.com/sitemap.xml");
+
+    @Test
+    void testLongestMatchDecides() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS_TXT);
+
+        assertTrue(rules.isAllowed("https://www.example.com/about-us"));
+        assertFalse(rules.isAllowed("https://www.example.com/intern/team"));
+        assertTrue(rules.isAllowed("https://www.example.com/intern/ueber-uns"));
+        assertFalse(rules.isAllowed("https://www.example.com/intern/ueber-uns/team"));
+        assertFalse(rules.isAllowed("https://www.example.com/docs/profil.pdf"));
+        assertTrue(rules.isAllowed("https://www.example.com/docs/profil.pdf?download=1"));
+    }
+
+    @Test
+    void testCollectsSitemaps() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS_TXT);
+
+        assertEquals(1, rules.getSitemaps().size());
+        assertEquals("https://www.example.com/sitemap.xml", rules.getSitemaps().get(0));
+    }
+}
@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.Discovery.SitemapReader;
+
+class SitemapReaderTest {
+
+    private static final String URLSET = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+            + "<url><loc>https://a.de/</loc><lastmod>2026-10-01</lastmod></url>"
+            + "<url><loc>\n  https://a.de/ueber-uns\n</loc></url>"
+            + "<url><loc></loc></url>"
+            + "</urlset>";
+
+    private final List<String> pageUrls = new ArrayList<>();
+    private final List<String> sitemaps = new ArrayList<>();
+
+    private void read(byte[] content) throws IOException {
+        SitemapReader.read(new ByteArrayInputStream(content), pageUrls::add, sitemaps::add);
+    }
+
+    @Test
+    void testPageUrlsAreReadFromAUrlset() throws IOException {
+        read(URLSET.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("https://a.de/", "https://a.de/ueber-uns"), pageUrls); // Trimmed, empty ones skipped
+        assertEquals(List.of(), sitemaps);
+    }
+
+    @Test
+    void testChildSitemapsAreReadFromAnIndex() throws IOException {
+        read(("<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">"
+                + "<sitemap><loc>https://a.de/sitemap-pages.xml</loc></sitemap>"
+                + "<sitemap><loc>https://a.de/sitemap-news.xml.gz</loc></sitemap>"
+                + "</sitemapindex>").getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("https://a.de/sitemap-pages.xml", "https://a.de/sitemap-news.xml.gz"), sitemaps);
+        assertEquals(List.of(), pageUrls);
+    }
+
+    @Test
+    void testGzipSitemapIsDecompressed() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(URLSET.getBytes(StandardCharsets.UTF_8));
+        }
+        read(compressed.toByteArray());
+
+        assertEquals(List.of("https://a.de/", "https://a.de/ueber-uns"), pageUrls);
+    }
+
+    @Test
+    void testExternalEntitiesAreNotResolvedAndInvalidXmlFails() {
+        byte[] withEntity = ("<?xml version=\"1.0\"?><!DOCTYPE urlset [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>"
+                + "<urlset><url><loc>https://a.de/&secret;</loc></url></urlset>").getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> read(withEntity));
+        assertThrows(IOException.class, () -> read("<urlset><url><loc>https://a.de/".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(List.of(), pageUrls);
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+import v2.dataProcessing.PageExtract;
+import v2.dataProcessing.StreamingHtmlExtractor;
+
+class StreamingHtmlExtractorTest {
+
+    private static final String URL = "https://www.example.com/unternehmen/";
+    private static final String HTML = String.join("\n",
+            "<!DOCTYPE html>",
+            "<html><head><title>Über uns</title>",
+            "<script>if (a < b && c > d) { document.write('<p>not a paragraph</p>'); }</script>",
+            "<style>p > a { color: red; }</style></head>",
+            "<body><!-- <a href=\"/commented\">x</a> -->",
+            "<nav><a href=\"profil.html\">Profil</a> <a href='/about-us?lang=de&amp;x=1'>About</a></nav>",
+            "<p>Die Müller &amp; Söhne GmbH<br>stellt  Maschinen <b>her</b>.",
+            "<p class=\"lead\">Seit 1950 in 3 < 4 Ländern.</p>",
+            "<div><p>Offener Absatz</div>",
+            "<a href=\"https://other.example.org/\">Partner</a>",
+            "</body></html>");
+
+    @Test
+    void testMatchesJsoupLinksAndParagraphs() {
+        Document document = Jsoup.parse(HTML, URL);
+        PageExtract pageExtract = extract(HTML);
+
+        List<String> jsoupLinks = document.select("a[href]").stream()
+                .map(link -> link.attr("abs:href")).collect(Collectors.toList());
+        List<String> jsoupParagraphs = document.select("p").stream()
+                .map(Element::text).collect(Collectors.toList());
+
+        assertEquals(jsoupLinks, pageExtract.getLinks());
+        assertEquals(jsoupParagraphs, pageExtract.getParagraphs());
+        assertFalse(pageExtract.hasSpaRoot());
+    }
+
+    @Test
+    void testJavaScriptSignals() {
+        PageExtract spa = extract("<html><body><div id=\"root\"></div><script src=\"/main.js\"></script></body></html>");
+        assertTrue(spa.hasSpaRoot());
+        assertEquals(0, spa.getVisibleTextLength());
+
+        PageExtract noscript = extract("<body><noscript>Enable JavaScript</noscript></body>");
+        assertEquals(noscript.getVisibleTextLength(), noscript.getNoscriptTextLength());
+    }
+
+    @Test
+    void testBaseHrefAndMetaCharset() throws Exception {
+        String html = "<html><head><meta charset=\"iso-8859-1\"><base href=\"https://cdn.example.com/de/\"></head>"
+                + "<body><p>Größe</p><a href=\"impressum\">Impressum</a></body></html>";
+        PageExtract pageExtract = StreamingHtmlExtractor.extract(html.getBytes(StandardCharsets.ISO_8859_1), null, URL);
+
+        assertEquals(List.of("Größe"), pageExtract.getParagraphs());
+        assertEquals(List.of("https://cdn.example.com/de/impressum"), pageExtract.getLinks());
+    }
+
+    private static PageExtract extract(String html) {
+        // Fed in small chunks, so tags, entities and script ends are split between chunks
+        StreamingHtmlExtractor extractor = new StreamingHtmlExtractor(URL);
+        char[] chars = html.toCharArray();
+        for (int offset = 0; offset < chars.length; offset += 7) {
+            extractor.feed(chars, offset, Math.min(7, chars.length - offset));
+        }
+        return extractor.finish();
+    }
+}
@@ -0,0 +1,38 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import v2.crawler.UrlSeenSet;
+
+class UrlSeenSetTest {
+
+    private UrlSeenSet seenSet;
+
+    @BeforeEach
+    void setUp() {
+        seenSet = new UrlSeenSet(1000);
+    }
+
+    @Test
+    void testAddReturnsFalseForNormalizedDuplicates() {
+        assertTrue(seenSet.add("https://www.example.com/about-us/"));
+        assertFalse(seenSet.add("HTTPS://www.Example.com:443/about-us#team"));
+        assertTrue(seenSet.contains("https://www.example.com/about-us"));
+        assertFalse(seenSet.contains("https://www.example.com/contact"));
+        assertEquals(1, seenSet.size());
+    }
+
+    @Test
+    void testGrowsBeyondExpectedSize() {
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(seenSet.add("https://site" + i + ".example.com/unternehmen"));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertFalse(seenSet.add("https://site" + i + ".example.com/unternehmen"));
+        }
+        assertEquals(100_000, seenSet.size());
+    }
+}
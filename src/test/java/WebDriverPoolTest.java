@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+
+import v2.crawler.Selenium.WebDriverPool;
+import v2.crawler.Selenium.WebDriverPool.PooledDriver;
+import v2.dataProcessing.ConfigManager;
+import v2.dataProcessing.ConfigManager.CrawlerConfig;
+
+class WebDriverPoolTest {
+
+    /**
+     * Stands in for a browser. Calls returning another Selenium interface, e.g. {@code manage()}, get a stub that
+     * accepts everything.
+     */
+    private static class FakeBrowser {
+        private boolean alive = true;
+        private boolean quit;
+        private final WebDriver webDriver = (WebDriver) stub(WebDriver.class, this);
+
+        private static Object stub(Class<?> type, FakeBrowser browser) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getWindowHandle":
+                        if (!browser.alive) {
+                            throw new IllegalStateException("The browser is gone");
+                        }
+                        return "window";
+                    case "getPageSource":
+                        return "<html><body><p>Über uns</p></body></html>";
+                    case "quit":
+                        browser.quit = true;
+                        return null;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return method.getReturnType().isInterface() ? stub(method.getReturnType(), browser) : null;
+                }
+            });
+        }
+    }
+
+    private final List<FakeBrowser> browsers = new ArrayList<>();
+
+    private WebDriverPool pool(int poolSize, int maxPagesPerDriver) {
+        CrawlerConfig crawlerConfig = new ConfigManager().getCrawlerConfig();
+        crawlerConfig.webDriverPoolSize = poolSize;
+        crawlerConfig.webDriverMaxPagesPerDriver = maxPagesPerDriver;
+        return new WebDriverPool(crawlerConfig, () -> {
+            FakeBrowser browser = new FakeBrowser();
+            browsers.add(browser);
+            return browser.webDriver;
+        });
+    }
+
+    @Test
+    void testReleasedDriverIsBorrowedAgainAndThePoolIsBounded() {
+        WebDriverPool pool = pool(1, 10);
+
+        PooledDriver driver = pool.borrow(0);
+        assertTrue(driver.load("https://a.de/").contains("Über uns"));
+        assertNull(pool.borrow(50)); // The only driver is borrowed
+        pool.release(driver, true);
+
+        assertSame(driver, pool.borrow(0));
+        assertEquals(1, browsers.size());
+        pool.shutdown();
+    }
+
+    @Test
+    void testDriverIsRecycledAfterItsPageLimit() {
+        WebDriverPool pool = pool(1, 2);
+
+        PooledDriver driver = pool.borrow(0);
+        driver.load("https://a.de/");
+        pool.release(driver, true);
+        driver = pool.borrow(0);
+        driver.load("https://a.de/team");
+        pool.release(driver, true);
+
+        assertTrue(browsers.get(0).quit);
+        pool.borrow(0);
+        assertEquals(2, browsers.size());
+        pool.shutdown();
+    }
+
+    @Test
+    void testFailedOrDeadDriversAreReplaced() {
+        WebDriverPool pool = pool(2, 10);
+
+        pool.release(pool.borrow(0), false); // Failed while in use
+        assertTrue(browsers.get(0).quit);
+
+        PooledDriver driver = pool.borrow(0);
+        pool.release(driver, true);
+        browsers.get(1).alive = false; // The browser died while idle
+        PooledDriver replacement = pool.borrow(0);
+
+        assertTrue(browsers.get(1).quit);
+        assertEquals(3, browsers.size());
+        assertFalse(browsers.get(2).quit);
+        pool.release(replacement, true);
+        pool.shutdown();
+        assertTrue(browsers.get(2).quit);
+    }
+}